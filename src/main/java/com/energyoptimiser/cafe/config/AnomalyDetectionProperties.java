@@ -0,0 +1,35 @@
+package com.energyoptimiser.cafe.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Tuning knobs for the streaming anomaly detector (prefix {@code energy.anomaly}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "energy.anomaly")
+public class AnomalyDetectionProperties {
+
+    /** Turn detection off entirely during ingestion. */
+    private boolean enabled = true;
+
+    /** EWMA smoothing factor for the per hour-of-day baseline (0-1). */
+    private double alpha = 0.1;
+
+    /** |z| at or above this flags a single reading as a spike or drop. */
+    private double spikeThreshold = 4.0;
+
+    /** z at or above this for every reading in the window flags sustained high load. */
+    private double sustainedThreshold = 2.0;
+
+    /** Number of recent readings kept in the per-café ring buffer. */
+    private int window = 6;
+
+    /** Samples an hour-of-day slot needs before it can raise anomalies. */
+    private int warmupSamples = 10;
+
+    /** Floor for the baseline standard deviation (kWh) so flat baselines don't alarm on noise. */
+    private double minStdDev = 0.05;
+}
@@ -0,0 +1,148 @@
+package com.energyoptimiser.cafe.config;
+
+import com.energyoptimiser.cafe.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit with queue-time-aware admission control.
+ * <p>
+ * Up to {@code maxConcurrent} callers run at once; others wait in a FIFO queue of at most
+ * {@code maxQueued}. A caller is turned away up front when the queue is full or when the
+ * predicted wait (its queue position × the recent average service time) already exceeds
+ * {@code maxQueueWait}, and after the fact if it actually waits that long. Shedding early keeps
+ * admitted requests fast instead of letting every request slow down until they all time out.
+ */
+public class Bulkhead implements MeterBinder {
+
+    private static final double SERVICE_TIME_ALPHA = 0.2;
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxQueueWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedPredicted = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+    private volatile double avgServiceNanos;
+
+    public Bulkhead(String name, BulkheadProperties.Limit limit) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, limit.getMaxConcurrent());
+        this.maxQueued = Math.max(0, limit.getMaxQueued());
+        this.maxQueueWaitNanos = limit.getMaxQueueWait().toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Wait for a slot, or throw {@link ServiceOverloadedException} when the request should be shed.
+     *
+     * @return the {@link System#nanoTime()} at which the slot was taken; pass it to {@link #release}
+     */
+    public long acquire() {
+        try {
+            // the timed form honours fairness; plain tryAcquire() would barge past queued callers
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                admitted.increment();
+                return System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw overloaded(maxQueueWaitNanos);
+        }
+        int position = queued.incrementAndGet();
+        try {
+            if (position > maxQueued) {
+                rejectedQueueFull.increment();
+                throw overloaded(predictedWaitNanos(position));
+            }
+            long predicted = predictedWaitNanos(position);
+            if (predicted > maxQueueWaitNanos) {
+                rejectedPredicted.increment();
+                throw overloaded(predicted);
+            }
+            if (!permits.tryAcquire(maxQueueWaitNanos, TimeUnit.NANOSECONDS)) {
+                rejectedTimeout.increment();
+                throw overloaded(maxQueueWaitNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw overloaded(maxQueueWaitNanos);
+        } finally {
+            queued.decrementAndGet();
+        }
+        admitted.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Return the slot taken by {@link #acquire} and fold its service time into the average.
+     */
+    public void release(long acquiredAt) {
+        long elapsed = System.nanoTime() - acquiredAt;
+        double avg = avgServiceNanos;
+        avgServiceNanos = avg == 0 ? elapsed : avg + SERVICE_TIME_ALPHA * (elapsed - avg);
+        permits.release();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int queued() {
+        return queued.get();
+    }
+
+    public long rejected() {
+        return rejectedQueueFull.sum() + rejectedPredicted.sum() + rejectedTimeout.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("energy.bulkhead.active", this, Bulkhead::active)
+                .tag("bulkhead", name).description("Requests currently running").register(registry);
+        Gauge.builder("energy.bulkhead.queued", this, Bulkhead::queued)
+                .tag("bulkhead", name).description("Requests waiting for a slot").register(registry);
+        Gauge.builder("energy.bulkhead.limit", this, b -> b.maxConcurrent)
+                .tag("bulkhead", name).register(registry);
+        Gauge.builder("energy.bulkhead.service.time", this, b -> b.avgServiceNanos / 1e9)
+                .tag("bulkhead", name).baseUnit("seconds")
+                .description("Moving average of time spent holding a slot").register(registry);
+        FunctionCounter.builder("energy.bulkhead.admitted", admitted, LongAdder::sum)
+                .tag("bulkhead", name).register(registry);
+        rejectedCounter(registry, "queue_full", rejectedQueueFull);
+        rejectedCounter(registry, "predicted_wait", rejectedPredicted);
+        rejectedCounter(registry, "timeout", rejectedTimeout);
+    }
+
+    private void rejectedCounter(MeterRegistry registry, String reason, LongAdder count) {
+        FunctionCounter.builder("energy.bulkhead.rejected", count, LongAdder::sum)
+                .tag("bulkhead", name).tag("reason", reason)
+                .description("Requests shed by admission control").register(registry);
+    }
+
+    private long predictedWaitNanos(int position) {
+        // callers ahead of us drain maxConcurrent at a time
+        long rounds = (position + maxConcurrent - 1) / maxConcurrent;
+        return (long) (rounds * avgServiceNanos);
+    }
+
+    private ServiceOverloadedException overloaded(long waitNanos) {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        return new ServiceOverloadedException(name, seconds);
+    }
+}
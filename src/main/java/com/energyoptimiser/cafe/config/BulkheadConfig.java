@@ -0,0 +1,38 @@
+package com.energyoptimiser.cafe.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Separate bulkheads for ingestion and analytics, applied to the café API by path.
+ * Request threads are virtual ({@code spring.threads.virtual.enabled}), so waiting in a
+ * bulkhead is cheap and the bulkheads, not the servlet thread pool, bound concurrency.
+ */
+@Configuration(proxyBeanMethods = false)
+public class BulkheadConfig {
+
+    static final String UPLOAD_PATH = "/api/cafes/upload";
+
+    @Bean
+    public Bulkhead ingestionBulkhead(BulkheadProperties properties) {
+        return new Bulkhead("ingestion", properties.getIngestion());
+    }
+
+    @Bean
+    public Bulkhead analyticsBulkhead(BulkheadProperties properties) {
+        return new Bulkhead("analytics", properties.getAnalytics());
+    }
+
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(BulkheadProperties properties,
+                                                                 @Qualifier("ingestionBulkhead") Bulkhead ingestion,
+                                                                 @Qualifier("analyticsBulkhead") Bulkhead analytics) {
+        FilterRegistrationBean<BulkheadFilter> registration =
+                new FilterRegistrationBean<>(new BulkheadFilter(ingestion, analytics));
+        registration.addUrlPatterns("/api/cafes", "/api/cafes/*");
+        registration.setEnabled(properties.isEnabled());
+        return registration;
+    }
+}
@@ -0,0 +1,67 @@
+package com.energyoptimiser.cafe.config;
+
+import com.energyoptimiser.cafe.exception.ServiceOverloadedException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Runs café API requests inside their {@link Bulkhead}: uploads in the ingestion one, everything
+ * else under {@code /api/cafes} in the analytics one. A servlet filter rather than a handler
+ * interceptor, so a request is admitted (or shed) before the dispatcher parses its multipart
+ * body; a rejected upload costs no parsing or temp-file spooling.
+ * <p>
+ * Shed requests get the same 503 + Retry-After as {@code GlobalExceptionHandler} would give,
+ * written here because filters run outside the controller advice.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Bulkhead ingestion;
+    private final Bulkhead analytics;
+
+    public BulkheadFilter(Bulkhead ingestion, Bulkhead analytics) {
+        this.ingestion = ingestion;
+        this.analytics = analytics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return bulkheadFor(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = bulkheadFor(request);
+        long acquiredAt;
+        try {
+            acquiredAt = bulkhead.acquire();
+        } catch (ServiceOverloadedException e) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(e.getMessage());
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            bulkhead.release(acquiredAt);
+        }
+    }
+
+    private Bulkhead bulkheadFor(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.equals(BulkheadConfig.UPLOAD_PATH)) return ingestion;
+        if (path.equals("/api/cafes") || path.startsWith("/api/cafes/")) return analytics;
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.energyoptimiser.cafe.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limits for the web layer (prefix {@code energy.bulkhead}).
+ * Ingestion and analytics get separate bulkheads so a burst of one cannot
+ * starve the other of database connections.
+ * <p>
+ * Each admitted request holds at most one primary connection at a time, so the defaults add
+ * up to the primary pool of 10: 2 uploads + 7 reads + 1 for the similarity index loader
+ * running in the background.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "energy.bulkhead")
+public class BulkheadProperties {
+
+    /** Turn admission control off entirely (every request is admitted). */
+    private boolean enabled = true;
+
+    /** CSV uploads. */
+    private Limit ingestion = new Limit(2, 8, Duration.ofSeconds(10));
+
+    /** Insights, costs, listings and the other read endpoints. */
+    private Limit analytics = new Limit(7, 200, Duration.ofSeconds(2));
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        /** Requests allowed to run at once; ingestion + analytics must leave the pool a spare connection. */
+        private int maxConcurrent;
+
+        /** Requests allowed to wait for a slot; further requests are rejected immediately. */
+        private int maxQueued;
+
+        /** Longest a request may wait for a slot, and the cap on the predicted wait at admission. */
+        private Duration maxQueueWait;
+
+        public Limit() {
+        }
+
+        public Limit(int maxConcurrent, int maxQueued, Duration maxQueueWait) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.maxQueueWait = maxQueueWait;
+        }
+    }
+}
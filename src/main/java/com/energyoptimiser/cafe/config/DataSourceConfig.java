@@ -0,0 +1,66 @@
+package com.energyoptimiser.cafe.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Read/write split between the primary database and an optional read replica.
+ * <p>
+ * The primary keeps the usual {@code spring.datasource.*} / {@code spring.datasource.hikari.*}
+ * settings. A replica is enabled by setting {@code energy.datasource.replica.url} (plus
+ * username/password) and gets its own pool via {@code energy.datasource.replica.hikari.*}.
+ * Read-only transactions (analytics) use the replica; ingestion and anything else use the primary.
+ */
+@Configuration(proxyBeanMethods = false)
+public class DataSourceConfig {
+
+    static final String REPLICA_PREFIX = "energy.datasource.replica";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                        Environment environment) {
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource(Binder.get(environment)));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Build the replica pool from configuration, or return null when no replica URL is set.
+     * Resolved at runtime (not via bean conditions) so AOT-processed builds can still switch it on.
+     */
+    static HikariDataSource replicaDataSource(Binder binder) {
+        DataSourceProperties properties = binder.bind(REPLICA_PREFIX, DataSourceProperties.class).orElse(null);
+        if (properties == null || !StringUtils.hasText(properties.getUrl())) {
+            return null;
+        }
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        binder.bind(REPLICA_PREFIX + ".hikari", Bindable.ofInstance(dataSource));
+        return dataSource;
+    }
+}
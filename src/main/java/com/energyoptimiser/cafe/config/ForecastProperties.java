@@ -0,0 +1,38 @@
+package com.energyoptimiser.cafe.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Smoothing parameters for the per-café Holt-Winters load forecast (prefix {@code energy.forecast}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "energy.forecast")
+public class ForecastProperties {
+
+    /** Update forecast models during ingestion. */
+    private boolean enabled = true;
+
+    /** Level smoothing (0-1). */
+    private double alpha = 0.05;
+
+    /** Trend smoothing (0-1). */
+    private double beta = 0.005;
+
+    /** Hour-of-day seasonal smoothing (0-1). */
+    private double dailyGamma = 0.1;
+
+    /** Hour-of-week seasonal smoothing (0-1). */
+    private double weeklyGamma = 0.1;
+
+    /** Trend damping per hour (0-1); keeps long horizons from running away. */
+    private double damping = 0.98;
+
+    /** Longer gaps in the data restart a café's model from scratch. */
+    private int maxGapHours = 336;
+
+    /** Largest horizon the forecast endpoint serves, in hours. */
+    private int maxHorizon = 168;
+}
@@ -0,0 +1,40 @@
+package com.energyoptimiser.cafe.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for CSV ingestion (prefix {@code energy.ingestion}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "energy.ingestion")
+public class IngestionProperties {
+
+    /** Rows committed per transaction in lenient mode. */
+    private int chunkSize = 1000;
+
+    /** Abort a lenient upload once more rows than this have been rejected. */
+    private int maxRejectedRows = 10_000;
+
+    /** Abort a lenient upload once the rejected share of processed rows exceeds this (0-1)... */
+    private double maxRejectedRatio = 0.5;
+
+    /** ...but only after this many rows, so a few early bad rows don't end the upload. */
+    private int ratioMinRows = 100;
+
+    /** Rejected rows kept (with line number and reason) per upload; the rest are only counted. */
+    private int maxReportedRows = 1000;
+
+    /** Number of recent rejected-row reports kept in the database for download. */
+    private int retainedReports = 50;
+
+    /** Rows dated more than this many years ago are rejected as implausible (e.g. a mistyped year). */
+    private int maxReadingAgeYears = 10;
+
+    /** Rows dated further than this into the future are rejected. */
+    private Duration maxClockSkew = Duration.ofDays(1);
+}
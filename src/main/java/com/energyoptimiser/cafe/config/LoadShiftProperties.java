@@ -0,0 +1,29 @@
+package com.energyoptimiser.cafe.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Search budget for the what-if load-shifting simulator (prefix {@code energy.load-shift}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "energy.load-shift")
+public class LoadShiftProperties {
+
+    /** Independent local-search runs per simulation, each from a different appliance order. */
+    private int restarts = 32;
+
+    /** Improvement passes over all appliances per run; a run also stops once a pass moves nothing. */
+    private int maxPasses = 20;
+
+    /** Largest number of appliances accepted in one request. */
+    private int maxAppliances = 100;
+
+    /** Largest number of schedules a request may ask for. */
+    private int maxSchedules = 10;
+
+    /** Fork-join worker threads; 0 means one per available processor. */
+    private int parallelism = 0;
+}
@@ -0,0 +1,56 @@
+package com.energyoptimiser.cafe.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends connections for {@code @Transactional(readOnly = true)} work to the read replica and
+ * everything else to the primary. When no replica is configured all traffic goes to the primary.
+ * <p>
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the read-only flag is only known once the transaction has started, so the physical
+ * connection has to be fetched at the first statement rather than at transaction begin.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    enum Route { PRIMARY, REPLICA }
+
+    private final DataSource replica;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        this.replica = replica;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        if (replica != null) {
+            targets.put(Route.REPLICA, replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public boolean hasReplica() {
+        return replica != null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return replica != null && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? Route.REPLICA
+                : Route.PRIMARY;
+    }
+
+    /**
+     * Closes the replica pool; the primary pool is a bean of its own and closed by the context.
+     */
+    @Override
+    public void close() throws Exception {
+        if (replica instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
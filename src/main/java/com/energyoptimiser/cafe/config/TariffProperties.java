@@ -0,0 +1,62 @@
+package com.energyoptimiser.cafe.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time-of-use tariff definitions and their assignment to cafés (prefix {@code energy.tariffs}).
+ * <pre>
+ * energy.tariffs.definitions.tou.rates=0.12,0.12,...   (24 hourly prices per kWh)
+ * energy.tariffs.definitions.tou.weekend-rates=...      (optional, Saturday and Sunday)
+ * energy.tariffs.definitions.tou.day-rates.FRIDAY=...   (optional, single weekday)
+ * energy.tariffs.definitions.tou.demand-charge=9.5      (per kW of monthly peak)
+ * energy.tariffs.default-tariff=tou
+ * energy.tariffs.cafe-assignments.42=tou
+ * </pre>
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "energy.tariffs")
+public class TariffProperties {
+
+    /** Tariff used for cafés without an explicit assignment; none when blank. */
+    private String defaultTariff;
+
+    /** Currency label shown next to cost figures. */
+    private String currency = "GBP";
+
+    /** Share of peak-hour load assumed movable when estimating shifting savings (0-1). */
+    private double shiftableFraction = 0.2;
+
+    /** café id → tariff name. */
+    private Map<Long, String> cafeAssignments = new HashMap<>();
+
+    /** tariff name → definition. */
+    private Map<String, Definition> definitions = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Definition {
+
+        /** 24 hourly rates applied to every day unless overridden. */
+        private List<Double> rates = new ArrayList<>();
+
+        /** 24 hourly rates for Saturday and Sunday. */
+        private List<Double> weekendRates = new ArrayList<>();
+
+        /** 24 hourly rates for individual weekdays; wins over rates and weekend-rates. */
+        private Map<DayOfWeek, List<Double>> dayRates = new EnumMap<>(DayOfWeek.class);
+
+        /** Charge per kW of the highest hourly demand in each calendar month. */
+        private double demandCharge;
+    }
+}
@@ -1,14 +1,44 @@
 package com.energyoptimiser.cafe.controller;
 
-import com.energyoptimiser.cafe.dto.InsightsResponse;
+import com.energyoptimiser.cafe.config.EncodingConfig;
+import com.energyoptimiser.cafe.dto.AnomalyResponse;
+import com.energyoptimiser.cafe.dto.CafeDataVersion;
+import com.energyoptimiser.cafe.dto.CafeSummaryResponse;
+import com.energyoptimiser.cafe.dto.CostSummaryResponse;
+import com.energyoptimiser.cafe.dto.CursorPageResponse;
+import com.energyoptimiser.cafe.dto.ForecastResponse;
+import com.energyoptimiser.cafe.dto.LoadShiftRequest;
+import com.energyoptimiser.cafe.dto.LoadShiftResponse;
+import com.energyoptimiser.cafe.dto.ReadingResponse;
+import com.energyoptimiser.cafe.dto.SimilarCafeResponse;
 import com.energyoptimiser.cafe.dto.UploadResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
 import com.energyoptimiser.cafe.service.AnalyticsService;
+import com.energyoptimiser.cafe.service.AnomalyService;
+import com.energyoptimiser.cafe.service.DataVersionService;
+import com.energyoptimiser.cafe.service.ForecastService;
 import com.energyoptimiser.cafe.service.IngestionService;
+import com.energyoptimiser.cafe.service.ListingService;
+import com.energyoptimiser.cafe.service.LoadShiftService;
 import com.energyoptimiser.cafe.service.OptimizationService;
+import com.energyoptimiser.cafe.service.RejectedRowReport;
+import com.energyoptimiser.cafe.service.SimilarityService;
+import com.energyoptimiser.cafe.service.TariffService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
 /**
  * REST controller exposing endpoints for CSV ingestion and insight retrieval.
  */
@@ -19,31 +49,221 @@ public class CafeController {
     private final IngestionService ingestionService;
     private final AnalyticsService analyticsService;
     private final OptimizationService optimizationService;
+    private final AnomalyService anomalyService;
+    private final SimilarityService similarityService;
+    private final TariffService tariffService;
+    private final DataVersionService dataVersionService;
+    private final ListingService listingService;
+    private final ForecastService forecastService;
+    private final LoadShiftService loadShiftService;
 
     public CafeController(IngestionService ingestionService,
                           AnalyticsService analyticsService,
-                          OptimizationService optimizationService) {
+                          OptimizationService optimizationService,
+                          AnomalyService anomalyService,
+                          SimilarityService similarityService,
+                          TariffService tariffService,
+                          DataVersionService dataVersionService,
+                          ListingService listingService,
+                          ForecastService forecastService,
+                          LoadShiftService loadShiftService) {
         this.ingestionService = ingestionService;
         this.analyticsService = analyticsService;
         this.optimizationService = optimizationService;
+        this.anomalyService = anomalyService;
+        this.similarityService = similarityService;
+        this.tariffService = tariffService;
+        this.dataVersionService = dataVersionService;
+        this.listingService = listingService;
+        this.forecastService = forecastService;
+        this.loadShiftService = loadShiftService;
+    }
+
+    /**
+     * List cafés ordered by id, one keyset page at a time.
+     * Pass the returned nextCursor as cursor to fetch the next page.
+     */
+    @GetMapping
+    public CursorPageResponse<CafeSummaryResponse> listCafes(@RequestParam(value = "cursor", required = false) String cursor,
+                                                             @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return listingService.listCafes(cursor, limit);
+    }
+
+    /**
+     * Browse a café's stored readings ordered by timestamp, one keyset page at a time.
+     */
+    @GetMapping("/{cafeId}/readings")
+    public ResponseEntity<CursorPageResponse<ReadingResponse>> listReadings(@PathVariable("cafeId") Long cafeId,
+                                                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                                                            @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                                            WebRequest request) {
+        return conditional(cafeId, request, () -> listingService.listReadings(cafeId, cursor, limit));
     }
 
     /**
      * Upload a CSV file with columns: name,location, timestamp, kwh
+     * mode=strict (default) rejects the whole file on the first bad row;
+     * mode=lenient skips bad rows and reports them under the returned upload id.
      */
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public UploadResponse upload(@RequestParam("file") MultipartFile file) {
+    public UploadResponse upload(@RequestParam("file") MultipartFile file,
+                                 @RequestParam(value = "mode", defaultValue = "strict") String mode) {
         // null and empty check handled in IngestionService
-        return ingestionService.processCSV(file);
+        return switch (mode.toLowerCase(Locale.ROOT)) {
+            case "strict" -> ingestionService.processCSV(file);
+            case "lenient" -> ingestionService.processCSVLenient(file);
+            default -> throw new BadRequestException("Unknown upload mode: " + mode + " (expected strict or lenient)");
+        };
+    }
+
+    /**
+     * Download the rows a lenient upload rejected, as CSV (line,reason,row).
+     */
+    @GetMapping(value = "/uploads/{uploadId}/rejected", produces = "text/csv")
+    public ResponseEntity<String> getRejectedRows(@PathVariable("uploadId") String uploadId) {
+        RejectedRowReport report = ingestionService.getRejectedRows(uploadId);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("rejected-" + uploadId + ".csv").build().toString())
+                .body(report.toCsv());
     }
 
     /**
      * Retrieve computed insights for a given café id.
+     * Supports If-None-Match / If-Modified-Since against the café's data version.
+     * format=compact (or Accept: application/vnd.energyoptimiser.compact+json) returns the
+     * array-based representation; Accept: application/cbor or application/x-jackson-smile
+     * selects a binary encoding of either.
      */
     @GetMapping("/{cafeId}/insights")
-    public InsightsResponse getInsights(@PathVariable("cafeId") Long cafeId) {
+    public ResponseEntity<?> getInsights(@PathVariable("cafeId") Long cafeId,
+                                         @RequestParam(value = "format", defaultValue = "full") String format,
+                                         WebRequest request) {
         // null and not-found checks handled in service layer / exception handler
-        var analytics = analyticsService.computeAnalytics(cafeId);
-        return optimizationService.generateInsights(analytics);
+        boolean compact = switch (format.toLowerCase(Locale.ROOT)) {
+            case "compact" -> true;
+            case "full" -> acceptsCompact(request);
+            default -> throw new BadRequestException("Unknown insights format: " + format + " (expected full or compact)");
+        };
+        return conditional(cafeId, request, compact ? "compact" : null, () -> {
+            var analytics = analyticsService.computeAnalytics(cafeId);
+            return compact ? optimizationService.generateCompactInsights(analytics)
+                    : optimizationService.generateInsights(analytics);
+        });
+    }
+
+    /**
+     * Retrieve the most recent anomalies flagged for a café during ingestion, newest first.
+     */
+    @GetMapping("/{cafeId}/anomalies")
+    public ResponseEntity<List<AnomalyResponse>> getAnomalies(@PathVariable("cafeId") Long cafeId,
+                                                              @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                              WebRequest request) {
+        return conditional(cafeId, request, () -> anomalyService.getRecentAnomalies(cafeId, limit));
+    }
+
+    /**
+     * Find the cafés whose normalized load profile is closest to this one.
+     * metric: cosine | euclidean, profile: daily (24h) | weekly (7x24)
+     */
+    @GetMapping("/{cafeId}/similar")
+    public List<SimilarCafeResponse> getSimilar(@PathVariable("cafeId") Long cafeId,
+                                                @RequestParam(value = "k", defaultValue = "5") int k,
+                                                @RequestParam(value = "metric", defaultValue = "cosine") String metric,
+                                                @RequestParam(value = "profile", defaultValue = "daily") String profile) {
+        return similarityService.findSimilar(cafeId, k, metric, profile);
+    }
+
+    /**
+     * Price a café's recorded usage under several tariffs (all configured tariffs when none given).
+     */
+    @GetMapping("/{cafeId}/costs")
+    public ResponseEntity<List<CostSummaryResponse>> compareCosts(@PathVariable("cafeId") Long cafeId,
+                                                                  @RequestParam(value = "tariff", required = false) List<String> tariffs,
+                                                                  WebRequest request) {
+        return conditional(cafeId, request, () -> {
+            var analytics = analyticsService.computeAnalytics(cafeId);
+            return tariffService.compareTariffs(analytics, tariffs);
+        });
+    }
+
+    /**
+     * Forecast the café's hourly load for the next 1-168 hours after its latest complete hour of data.
+     */
+    @GetMapping("/{cafeId}/forecast")
+    public ResponseEntity<ForecastResponse> getForecast(@PathVariable("cafeId") Long cafeId,
+                                                        @RequestParam(value = "hours", defaultValue = "24") int hours,
+                                                        WebRequest request) {
+        return conditional(cafeId, request, () -> forecastService.getForecast(cafeId, hours));
+    }
+
+    /**
+     * Simulate moving shiftable appliances to other start hours over the café's typical week and
+     * return the best schedules found, with the new peak and (under the café's tariff) weekly savings.
+     */
+    @PostMapping("/{cafeId}/load-shift")
+    public LoadShiftResponse simulateLoadShift(@PathVariable("cafeId") Long cafeId,
+                                               @RequestBody LoadShiftRequest request) {
+        return loadShiftService.simulate(cafeId, request);
+    }
+
+    /**
+     * Answer 304 when the client's ETag / Last-Modified still matches the café's data version,
+     * otherwise build the body. The version is read first, so a concurrent upload can only make
+     * the tag older than the body (forcing a refetch next time), never newer. That holds for
+     * derived state too: anomalies commit with their readings, and in-memory forecast models
+     * are brought up to the data version they are served with before the body is built.
+     */
+    private <T> ResponseEntity<T> conditional(Long cafeId, WebRequest request, Supplier<T> body) {
+        return conditional(cafeId, request, null, body);
+    }
+
+    /**
+     * As above, for one of several representations of the same data. Each representation and
+     * binary encoding gets its own entity tag, and responses vary by Accept.
+     */
+    private <T> ResponseEntity<T> conditional(Long cafeId, WebRequest request, String representation, Supplier<T> body) {
+        CafeDataVersion version = dataVersionService.current(cafeId);
+        String etag = version.etag(variant(representation, request));
+        if (request instanceof ServletWebRequest servlet && servlet.getResponse() != null) {
+            servlet.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        if (request.checkNotModified(etag, version.lastModified())) {
+            return null; // 304 with validators already set by checkNotModified
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(etag);
+        if (version.lastModified() >= 0) {
+            ok.lastModified(version.lastModified());
+        }
+        return ok.body(body.get());
+    }
+
+    private static String variant(String representation, WebRequest request) {
+        String encoding = null;
+        for (MediaType type : acceptedTypes(request)) {
+            // the most specific acceptable type decides the encoding, as in content negotiation
+            if (type.isWildcardType() || type.isWildcardSubtype()) continue;
+            if (type.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) encoding = "cbor";
+            else if (type.equalsTypeAndSubtype(EncodingConfig.SMILE)) encoding = "smile";
+            break;
+        }
+        if (representation == null) return encoding;
+        return encoding == null ? representation : representation + "-" + encoding;
+    }
+
+    private static boolean acceptsCompact(WebRequest request) {
+        return acceptedTypes(request).stream().anyMatch(t -> t.equalsTypeAndSubtype(EncodingConfig.COMPACT_JSON));
+    }
+
+    private static List<MediaType> acceptedTypes(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) return List.of();
+        try {
+            List<MediaType> types = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(types);
+            return types;
+        } catch (InvalidMediaTypeException e) {
+            return List.of();
+        }
     }
 }
\ No newline at end of file
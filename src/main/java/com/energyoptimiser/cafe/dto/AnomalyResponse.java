@@ -0,0 +1,20 @@
+package com.energyoptimiser.cafe.dto;
+
+import com.energyoptimiser.cafe.model.AnomalyType;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * DTO for a flagged anomalous reading.
+ */
+public record AnomalyResponse(
+        Long id,
+        LocalDateTime timestamp,
+        double kwh,
+        double expectedKwh,
+        double score,
+        AnomalyType type,
+        LocalDateTime detectedAt
+) {
+}
@@ -0,0 +1,39 @@
+package com.energyoptimiser.cafe.dto;
+
+import java.time.Instant;
+
+
+/**
+ * Projection of a café's data version, used for ETag / Last-Modified validation
+ * without loading readings.
+ */
+public record CafeDataVersion(
+        Long cafeId,
+        long version,
+        Instant updatedAt
+) {
+
+    /**
+     * Weak entity tag for representations derived from this café's data. Weak, because the
+     * bytes differ when a response is compressed (and Tomcat won't compress strong-tagged ones).
+     */
+    public String etag() {
+        return "W/\"" + cafeId + "-" + version + "\"";
+    }
+
+    /**
+     * Entity tag for one representation (e.g. a compact or binary encoding) of the same data,
+     * so caches never confuse one variant for another. A null or empty variant gives {@link #etag()}.
+     */
+    public String etag(String variant) {
+        if (variant == null || variant.isEmpty()) return etag();
+        return "W/\"" + cafeId + "-" + version + "-" + variant + "\"";
+    }
+
+    /**
+     * Last-Modified as epoch millis, or -1 when the café has never been bumped.
+     */
+    public long lastModified() {
+        return updatedAt == null ? -1 : updatedAt.toEpochMilli();
+    }
+}
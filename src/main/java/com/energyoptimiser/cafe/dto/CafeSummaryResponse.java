@@ -0,0 +1,12 @@
+package com.energyoptimiser.cafe.dto;
+
+
+/**
+ * DTO for one café in a listing.
+ */
+public record CafeSummaryResponse(
+        Long id,
+        String name,
+        String location
+) {
+}
@@ -0,0 +1,29 @@
+package com.energyoptimiser.cafe.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+
+/**
+ * Array-based variant of {@link InsightsResponse} for dashboards.
+ * {@code hourlyUsage[h]} is the total for hour of day {@code h}; {@code dailyUsage[i]} and
+ * {@code dailyCost[i]} cover day {@code dailyStart + i * dailyStepDays}, with 0 for days without
+ * readings; like the hourly series they cover at most the latest ten years of data.
+ * {@code cost.costByDay} is left out in favour of {@code dailyCost}.
+ */
+public record CompactInsightsResponse(
+        double[] hourlyUsage,
+        LocalDate dailyStart,
+        int dailyStepDays,
+        double[] dailyUsage,
+        double[] dailyCost,
+        List<Integer> peakHours,
+        double averageDailyUsage,
+        double maxDailyUsage,
+        List<String> recommendations,
+        LoadCubeResponse weekdayHourLoad,
+        LoadCubeResponse monthHourLoad,
+        CostSummaryResponse cost,
+        ForecastResponse nextDayForecast
+) {
+}
@@ -0,0 +1,22 @@
+package com.energyoptimiser.cafe.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+
+/**
+ * DTO for the cost of a café's recorded usage under one tariff.
+ * {@code costByDay} is only filled in for the café's own tariff in the insights response,
+ * not in tariff comparisons.
+ */
+public record CostSummaryResponse(
+        String tariff,
+        String currency,
+        double energyCost,
+        double demandCharges,
+        double totalCost,
+        double[] costByHour,
+        Map<LocalDate, Double> costByDay,
+        double peakShiftSavings
+) {
+}
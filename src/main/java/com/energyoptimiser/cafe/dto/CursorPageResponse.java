@@ -0,0 +1,14 @@
+package com.energyoptimiser.cafe.dto;
+
+import java.util.List;
+
+
+/**
+ * DTO for one page of a keyset-paginated listing.
+ * Pass {@code nextCursor} back as {@code cursor} to get the following page; it is null on the last page.
+ */
+public record CursorPageResponse<T>(
+        List<T> items,
+        String nextCursor
+) {
+}
@@ -0,0 +1,17 @@
+package com.energyoptimiser.cafe.dto;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * DTO for an hourly load forecast. {@code kwh[i]} is the predicted total for hour {@code start + i}.
+ */
+public record ForecastResponse(
+        Long cafeId,
+        LocalDateTime start,
+        double[] kwh,
+        double totalKwh,
+        LocalDateTime peakAt,
+        double peakKwh
+) {
+}
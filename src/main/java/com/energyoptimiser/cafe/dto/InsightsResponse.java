@@ -15,6 +15,10 @@ public record InsightsResponse(
         List<Integer> peakHours,
         double averageDailyUsage,
         double maxDailyUsage,
-        List<String> recommendations
+        List<String> recommendations,
+        LoadCubeResponse weekdayHourLoad,
+        LoadCubeResponse monthHourLoad,
+        CostSummaryResponse cost,
+        ForecastResponse nextDayForecast
 ) {
 }
@@ -0,0 +1,16 @@
+package com.energyoptimiser.cafe.dto;
+
+import java.util.List;
+
+
+/**
+ * DTO for a load cube: one row per label (weekday or month), 24 hour columns per row.
+ * {@code sum}, {@code mean} and {@code max} are indexed as [row][hour].
+ */
+public record LoadCubeResponse(
+        List<String> rows,
+        double[][] sum,
+        double[][] mean,
+        double[][] max
+) {
+}
@@ -0,0 +1,36 @@
+package com.energyoptimiser.cafe.dto;
+
+import java.util.List;
+
+
+/**
+ * DTO for a what-if load-shifting simulation.
+ * {@code objective} is peak (default) or cost; {@code schedules} is the most distinct schedules
+ * to return (default 3), fewer when the search keeps converging on the same ones.
+ */
+public record LoadShiftRequest(
+        String objective,
+        Integer schedules,
+        List<Appliance> appliances
+) {
+
+    /**
+     * A shiftable appliance run once a day: {@code kwh} spread evenly over {@code durationHours},
+     * currently starting at {@code currentStartHour}. The whole run must fit inside one of the
+     * {@code windows}; any time of day is allowed when none are given.
+     */
+    public record Appliance(
+            String name,
+            double kwh,
+            int durationHours,
+            Integer currentStartHour,
+            List<Window> windows
+    ) {
+    }
+
+    /**
+     * Hours of day [fromHour, toHour).
+     */
+    public record Window(int fromHour, int toHour) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.energyoptimiser.cafe.dto;
+
+import java.util.List;
+
+
+/**
+ * DTO for the result of a load-shifting simulation over the café's typical week
+ * (mean kWh per weekday and hour). Cost figures are per typical week under the café's
+ * tariff and are null when no tariff applies.
+ */
+public record LoadShiftResponse(
+        Long cafeId,
+        String objective,
+        String tariff,
+        String currency,
+        double baselinePeakKwh,
+        Double baselineWeeklyCost,
+        List<Schedule> schedules
+) {
+
+    /**
+     * One candidate schedule, best first.
+     */
+    public record Schedule(
+            List<Placement> placements,
+            double peakKwh,
+            double peakReductionKwh,
+            Double weeklyCost,
+            Double weeklySavings
+    ) {
+    }
+
+    /**
+     * Where an appliance runs in this schedule: hours [startHour, endHour) every day.
+     */
+    public record Placement(
+            String appliance,
+            int currentStartHour,
+            int startHour,
+            int endHour
+    ) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.energyoptimiser.cafe.dto;
+
+import java.time.LocalDateTime;
+
+
+/**
+ * DTO for one stored energy reading.
+ */
+public record ReadingResponse(
+        Long id,
+        LocalDateTime timestamp,
+        double kwh
+) {
+}
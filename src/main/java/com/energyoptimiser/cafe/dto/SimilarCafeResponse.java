@@ -0,0 +1,13 @@
+package com.energyoptimiser.cafe.dto;
+
+
+/**
+ * DTO for one neighbour in a similar-café search. Lower distance means more similar.
+ */
+public record SimilarCafeResponse(
+        Long cafeId,
+        String name,
+        String location,
+        double distance
+) {
+}
@@ -6,12 +6,16 @@ import java.time.LocalDateTime;
 /**
  * DTO for CSV upload outcomes.
  * Provides a stable, read‑only view of the processed file.
+ * {@code uploadId} is set only when a lenient upload rejected rows; the rejected
+ * rows can then be downloaded from {@code /api/cafes/uploads/{uploadId}/rejected}.
  */
 public record UploadResponse(
         Long cafeId,
         String fileName,
         int rowsImported,
+        int rowsRejected,
         String status,
+        String uploadId,
         LocalDateTime processedAt
 ) {
 }
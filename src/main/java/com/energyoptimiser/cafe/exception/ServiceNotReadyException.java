@@ -0,0 +1,15 @@
+package com.energyoptimiser.cafe.exception;
+
+public class ServiceNotReadyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceNotReadyException(String what, long retryAfterSeconds) {
+        super("The " + what + " is still warming up, retry in " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
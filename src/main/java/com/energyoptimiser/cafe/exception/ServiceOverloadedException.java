@@ -0,0 +1,15 @@
+package com.energyoptimiser.cafe.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String bulkhead, long retryAfterSeconds) {
+        super("Too many concurrent " + bulkhead + " requests, retry in " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
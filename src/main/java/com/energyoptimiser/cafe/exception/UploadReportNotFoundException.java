@@ -0,0 +1,7 @@
+package com.energyoptimiser.cafe.exception;
+
+public class UploadReportNotFoundException extends RuntimeException {
+    public UploadReportNotFoundException(String uploadId) {
+        super("No rejected-row report for upload " + uploadId + " (it may have expired)");
+    }
+}
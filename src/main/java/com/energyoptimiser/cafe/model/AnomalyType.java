@@ -0,0 +1,13 @@
+package com.energyoptimiser.cafe.model;
+
+/**
+ * Kinds of anomaly the streaming detector can raise.
+ */
+public enum AnomalyType {
+    /** A single reading far above the usual load for that hour of day. */
+    SPIKE,
+    /** A single reading far below the usual load (e.g. a fridge that stopped drawing power). */
+    DROP,
+    /** Several consecutive readings above the baseline (e.g. an oven left on overnight). */
+    SUSTAINED_HIGH
+}
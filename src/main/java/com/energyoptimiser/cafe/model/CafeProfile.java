@@ -3,6 +3,7 @@ package com.energyoptimiser.cafe.model;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -32,6 +33,17 @@ public class CafeProfile {
     @Column(nullable = false)
     private String location;
 
+    /**
+     * Bumped by ingestion whenever readings are added for this café. Clients use it
+     * (via ETag / Last-Modified) to skip re-fetching insights that cannot have changed.
+     */
+    @Column(name = "data_version", nullable = false)
+    @Builder.Default
+    private long dataVersion = 0L;
+
+    @Column(name = "data_updated_at")
+    private Instant dataUpdatedAt;
+
     /**
      * All energy readings that belong to this café.
      * This is mainly kept so we can easily look up a café’s readings when needed
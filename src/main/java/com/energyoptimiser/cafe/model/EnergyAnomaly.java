@@ -0,0 +1,58 @@
+package com.energyoptimiser.cafe.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * JPA entity representing an anomalous reading flagged during ingestion.
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString(exclude = "cafe")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Entity
+@Table(name = "ENERGY_ANOMALY",
+        indexes = @Index(name = "idx_energy_anomaly_cafe_ts", columnList = "cafe_id, timestamp"))
+public class EnergyAnomaly {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "cafe_id", nullable = false,
+            foreignKey = @ForeignKey(name = "fk_energy_anomaly_cafe"))
+    private CafeProfile cafe;
+
+    @Column(name = "timestamp", nullable = false)
+    private LocalDateTime timestamp;
+
+    @Column(nullable = false)
+    private double kwh;
+
+    /**
+     * Baseline (EWMA) kWh for the reading's hour of day at the time it was flagged.
+     */
+    @Column(name = "expected_kwh", nullable = false)
+    private double expectedKwh;
+
+    /**
+     * Deviation from the baseline in standard deviations.
+     */
+    @Column(nullable = false)
+    private double score;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private AnomalyType type;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+}
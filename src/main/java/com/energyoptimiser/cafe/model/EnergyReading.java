@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 @ToString(exclude = "cafe")
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Entity
-@Table(name = "ENERGY_READING")
+@Table(name = "ENERGY_READING",
+        indexes = @Index(name = "idx_energy_reading_cafe_ts_id", columnList = "cafe_id, timestamp, id"))
 public class EnergyReading {
 
     @Id
@@ -0,0 +1,72 @@
+package com.energyoptimiser.cafe.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JPA entity holding the rows a lenient upload rejected, so the report can be downloaded
+ * from any instance, not just the one that ran the upload.
+ */
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString(exclude = "rows")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Entity
+@Table(name = "REJECTED_UPLOAD",
+        indexes = @Index(name = "idx_rejected_upload_created_at", columnList = "created_at"))
+public class RejectedUpload {
+
+    @Id
+    @Column(name = "upload_id", length = 36)
+    @EqualsAndHashCode.Include
+    private String uploadId;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    /**
+     * All rejected rows, including those beyond the {@code rows} kept in detail.
+     */
+    @Column(name = "rejected_count", nullable = false)
+    private int rejectedCount;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @ElementCollection
+    @CollectionTable(name = "REJECTED_UPLOAD_ROW", joinColumns = @JoinColumn(name = "upload_id",
+            foreignKey = @ForeignKey(name = "fk_rejected_upload_row_upload")))
+    @OrderColumn(name = "row_index")
+    @Builder.Default
+    private List<Row> rows = new ArrayList<>();
+
+    /**
+     * One rejected CSV row: its line number, why it was rejected and its raw text.
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Embeddable
+    public static class Row {
+
+        @Column(name = "line_number", nullable = false)
+        private int line;
+
+        @Lob
+        @Column(name = "reason")
+        private String reason;
+
+        @Lob
+        @Column(name = "raw_row")
+        private String raw;
+    }
+}
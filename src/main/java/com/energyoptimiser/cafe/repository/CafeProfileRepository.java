@@ -1,13 +1,46 @@
 package com.energyoptimiser.cafe.repository;
 
+import com.energyoptimiser.cafe.dto.CafeDataVersion;
+import com.energyoptimiser.cafe.dto.CafeSummaryResponse;
 import com.energyoptimiser.cafe.model.CafeProfile;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CafeProfileRepository extends JpaRepository<CafeProfile, Long> {
 
     Optional<CafeProfile> findByNameAndLocation(String name, String location);
+
+    @Query("select new com.energyoptimiser.cafe.dto.CafeDataVersion(c.id, c.dataVersion, c.dataUpdatedAt) "
+            + "from CafeProfile c where c.id = :id")
+    Optional<CafeDataVersion> findDataVersionById(@Param("id") Long id);
+
+    @Query("select new com.energyoptimiser.cafe.dto.CafeDataVersion(c.id, c.dataVersion, c.dataUpdatedAt) "
+            + "from CafeProfile c where c.id in :ids")
+    List<CafeDataVersion> findDataVersionsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.energyoptimiser.cafe.dto.CafeDataVersion(c.id, c.dataVersion, c.dataUpdatedAt) "
+            + "from CafeProfile c")
+    List<CafeDataVersion> findAllDataVersions();
+
+    /**
+     * Keyset page of cafés ordered by id: everything after {@code afterId}, so every page is a
+     * primary-key range scan regardless of depth.
+     */
+    @Query("select new com.energyoptimiser.cafe.dto.CafeSummaryResponse(c.id, c.name, c.location) "
+            + "from CafeProfile c where c.id > :afterId order by c.id")
+    List<CafeSummaryResponse> findPageAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Modifying
+    @Query("update CafeProfile c set c.dataVersion = c.dataVersion + 1, c.dataUpdatedAt = :now where c.id in :ids")
+    int bumpDataVersion(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
 }
@@ -0,0 +1,14 @@
+package com.energyoptimiser.cafe.repository;
+
+import com.energyoptimiser.cafe.model.EnergyAnomaly;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EnergyAnomalyRepository extends JpaRepository<EnergyAnomaly, Long> {
+
+    List<EnergyAnomaly> findByCafe_IdOrderByTimestampDesc(Long cafeId, Limit limit);
+}
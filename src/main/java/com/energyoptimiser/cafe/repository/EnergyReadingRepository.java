@@ -1,13 +1,72 @@
 package com.energyoptimiser.cafe.repository;
 
+import com.energyoptimiser.cafe.dto.ReadingResponse;
 import com.energyoptimiser.cafe.model.EnergyReading;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface EnergyReadingRepository extends JpaRepository<EnergyReading, Long> {
 
     List<EnergyReading> findByCafe_Id(Long cafeId);
+
+    /**
+     * First keyset page of a café's readings, ordered by (timestamp, id).
+     */
+    @Query("select new com.energyoptimiser.cafe.dto.ReadingResponse(r.id, r.timestamp, r.kwh) "
+            + "from EnergyReading r where r.cafe.id = :cafeId order by r.timestamp, r.id")
+    List<ReadingResponse> findFirstPage(@Param("cafeId") Long cafeId, Limit limit);
+
+    /**
+     * Keyset page of a café's readings after the (timestamp, id) position of the previous page.
+     * Seeks on the (cafe_id, timestamp, id) index, so deep pages cost the same as the first.
+     */
+    @Query("select new com.energyoptimiser.cafe.dto.ReadingResponse(r.id, r.timestamp, r.kwh) "
+            + "from EnergyReading r where r.cafe.id = :cafeId "
+            + "and (r.timestamp > :timestamp or (r.timestamp = :timestamp and r.id > :id)) "
+            + "order by r.timestamp, r.id")
+    List<ReadingResponse> findPageAfter(@Param("cafeId") Long cafeId,
+                                        @Param("timestamp") LocalDateTime timestamp,
+                                        @Param("id") long id,
+                                        Limit limit);
+
+    /**
+     * Total kWh per café, weekday (1 = Sunday ... 7 = Saturday) and hour of day over all
+     * readings, ordered by café. A single grouped scan; fills the similarity index after startup.
+     */
+    @Query("select r.cafe.id as cafeId, extract(day of week from r.timestamp) as dayOfWeek, "
+            + "extract(hour from r.timestamp) as hour, sum(r.kwh) as kwh "
+            + "from EnergyReading r "
+            + "group by r.cafe.id, extract(day of week from r.timestamp), extract(hour from r.timestamp) "
+            + "order by r.cafe.id")
+    Stream<WeekHourTotal> streamWeekHourTotals();
+
+    /**
+     * {@link #streamWeekHourTotals()} for a single café, to index it on demand.
+     */
+    @Query("select r.cafe.id as cafeId, extract(day of week from r.timestamp) as dayOfWeek, "
+            + "extract(hour from r.timestamp) as hour, sum(r.kwh) as kwh "
+            + "from EnergyReading r where r.cafe.id = :cafeId "
+            + "group by r.cafe.id, extract(day of week from r.timestamp), extract(hour from r.timestamp)")
+    List<WeekHourTotal> findWeekHourTotals(@Param("cafeId") Long cafeId);
+
+    /**
+     * One row of {@link #streamWeekHourTotals()}.
+     */
+    interface WeekHourTotal {
+        Long getCafeId();
+
+        Integer getDayOfWeek();
+
+        Integer getHour();
+
+        Double getKwh();
+    }
 }
@@ -0,0 +1,19 @@
+package com.energyoptimiser.cafe.repository;
+
+import com.energyoptimiser.cafe.model.RejectedUpload;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RejectedUploadRepository extends JpaRepository<RejectedUpload, String> {
+
+    /**
+     * Upload ids, newest report first; page past the retained ones to find those to evict.
+     */
+    @Query("select u.uploadId from RejectedUpload u order by u.createdAt desc, u.uploadId desc")
+    List<String> findUploadIdsNewestFirst(Pageable pageable);
+}
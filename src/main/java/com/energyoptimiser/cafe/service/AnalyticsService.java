@@ -1,11 +1,17 @@
 package com.energyoptimiser.cafe.service;
 
+import com.energyoptimiser.cafe.dto.CafeDataVersion;
 import com.energyoptimiser.cafe.exception.CafeNotFoundException;
 import com.energyoptimiser.cafe.model.EnergyReading;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
 import com.energyoptimiser.cafe.repository.EnergyReadingRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.Month;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -13,55 +19,90 @@ import java.util.stream.Collectors;
 public class AnalyticsService
 {
 
+    private static final int HOURS = 24;
+
+    /**
+     * Longest span, ending at the latest reading, kept in the dense day × hour series
+     * (about ten years, ~700 KB). Older days are bucketed sparsely.
+     */
+    public static final int MAX_SERIES_DAYS = 3660;
+    private static final List<String> WEEKDAY_LABELS =
+            Arrays.stream(DayOfWeek.values()).map(Enum::name).toList();
+    private static final List<String> MONTH_LABELS =
+            Arrays.stream(Month.values()).map(Enum::name).toList();
+
     private final EnergyReadingRepository energyReadingRepository;
+    private final CafeProfileRepository cafeProfileRepository;
 
-    public AnalyticsService(EnergyReadingRepository energyReadingRepository) {
+    public AnalyticsService(EnergyReadingRepository energyReadingRepository,
+                            CafeProfileRepository cafeProfileRepository) {
         this.energyReadingRepository = energyReadingRepository;
+        this.cafeProfileRepository = cafeProfileRepository;
     }
 
     /**
      * Aggregate total kWh per day for a café.
      */
+    @Transactional(readOnly = true)
     public Map<LocalDate, Double> getDailyUsage(Long cafeId) {
-        List<EnergyReading> readings = energyReadingRepository.findByCafe_Id(cafeId);
-        if (readings.isEmpty()) {
-            throw new CafeNotFoundException(cafeId);
-        }
-
-        Map<LocalDate, Double> daily = new TreeMap<>();
-        for (EnergyReading r : readings) {
-            LocalDate day = r.getTimestamp().toLocalDate();
-            daily.merge(day, r.getKwh(), Double::sum);
-        }
-        return daily;
+        return aggregate(cafeId).dailyUsage();
     }
 
     /**
      * Aggregate total kWh per hour-of-day (0-23) for a café.
      */
+    @Transactional(readOnly = true)
     public Map<Integer, Double> getHourlyUsage(Long cafeId) {
-        List<EnergyReading> readings = energyReadingRepository.findByCafe_Id(cafeId);
-        if (readings.isEmpty()) {
-            throw new CafeNotFoundException(cafeId);
-        }
-
-        Map<Integer, Double> hourly = new TreeMap<>();
-        for (EnergyReading r : readings) {
-            int hour = r.getTimestamp().getHour();
-            hourly.merge(hour, r.getKwh(), Double::sum);
-        }
-        // ensure all 24 hours exist (optional)
-        for (int h = 0; h < 24; h++) {
-            hourly.putIfAbsent(h, 0.0);
-        }
-        return hourly;
+        return aggregate(cafeId).hourlyUsage();
     }
 
     /**
      * Identify peak hours as the top N hours by usage (default 3) or those above mean+std dev.
      */
+    @Transactional(readOnly = true)
     public List<Integer> findPeaks(Long cafeId) {
-        Map<Integer, Double> hourly = getHourlyUsage(cafeId);
+        return findPeaks(getHourlyUsage(cafeId));
+    }
+
+    /**
+     * Build analytics data snapshot consumed by OptimizationService.
+     * Readings are fetched and scanned once; every view is derived from that single pass.
+     * Read-only, so it may be served by a lagging replica. The café's data version is read in
+     * the same repeatable-read snapshot and carried by the hourly series, so in-memory models
+     * rebuilt from it know exactly which data they reflect.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public AnalyticsData computeAnalytics(Long cafeId) {
+        long version = dataVersion(cafeId);
+        UsageAggregate agg = aggregate(cafeId);
+        Map<Integer, Double> hourly = agg.hourlyUsage();
+        Map<LocalDate, Double> daily = agg.dailyUsage();
+        List<Integer> peaks = findPeaks(hourly);
+        LoadCube weekdayHourLoad = agg.weekdayHourLoad();
+
+        double averageDaily = daily.values().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        double maxDaily = daily.values().stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
+
+        return new AnalyticsData(cafeId, hourly, daily, peaks, averageDaily, maxDaily,
+                weekdayHourLoad, agg.monthHourLoad(), agg.hourlySeries(version));
+    }
+
+    /**
+     * The café's dense hourly series and the data version it reflects, from one
+     * repeatable-read snapshot. In-memory models only move forward by that version, so a
+     * lagging replica can never roll them back.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public HourlySeries loadHourlySeries(Long cafeId) {
+        long version = dataVersion(cafeId);
+        return aggregate(cafeId).hourlySeries(version);
+    }
+
+    private long dataVersion(Long cafeId) {
+        return cafeProfileRepository.findDataVersionById(cafeId).map(CafeDataVersion::version).orElse(0L);
+    }
+
+    private List<Integer> findPeaks(Map<Integer, Double> hourly) {
         if (hourly.isEmpty()) return List.of();
 
         double mean = hourly.values().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
@@ -87,17 +128,116 @@ public class AnalyticsService
     }
 
     /**
-     * Build analytics data snapshot consumed by OptimizationService.
+     * Fetch a café's readings and bucket them into a dense day × hour matrix in one pass.
+     * The matrix spans at most {@link #MAX_SERIES_DAYS} up to the latest reading; older readings
+     * (e.g. a mistyped year) go into per-day buckets, so its size never depends on one stray date.
      */
-    public AnalyticsData computeAnalytics(Long cafeId) {
-        Map<Integer, Double> hourly = getHourlyUsage(cafeId);
-        Map<LocalDate, Double> daily = getDailyUsage(cafeId);
-        List<Integer> peaks = findPeaks(cafeId);
+    private UsageAggregate aggregate(Long cafeId) {
+        List<EnergyReading> readings = energyReadingRepository.findByCafe_Id(cafeId);
+        if (readings.isEmpty()) {
+            throw new CafeNotFoundException(cafeId);
+        }
 
-        double averageDaily = daily.values().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-        double maxDaily = daily.values().stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
+        long firstDay = Long.MAX_VALUE;
+        long lastDay = Long.MIN_VALUE;
+        for (EnergyReading r : readings) {
+            long day = r.getTimestamp().toLocalDate().toEpochDay();
+            if (day < firstDay) firstDay = day;
+            if (day > lastDay) lastDay = day;
+        }
+
+        long seriesStart = Math.max(firstDay, lastDay - MAX_SERIES_DAYS + 1);
+        int days = (int) (lastDay - seriesStart + 1);
+        double[] dayHour = new double[days * HOURS];
+        boolean[] seen = new boolean[days];
+        SortedMap<LocalDate, double[]> older = new TreeMap<>();
+        for (EnergyReading r : readings) {
+            LocalDate date = r.getTimestamp().toLocalDate();
+            long d = date.toEpochDay() - seriesStart;
+            if (d < 0) {
+                older.computeIfAbsent(date, k -> new double[HOURS])[r.getTimestamp().getHour()] += r.getKwh();
+                continue;
+            }
+            dayHour[(int) d * HOURS + r.getTimestamp().getHour()] += r.getKwh();
+            seen[(int) d] = true;
+        }
+        return new UsageAggregate(LocalDate.ofEpochDay(seriesStart), dayHour, seen, older);
+    }
+
+    /**
+     * Dense kWh matrix (day index × hour of day) starting at {@code firstDay}, plus which
+     * days actually had readings, and per-day hourly totals for days before {@code firstDay}.
+     * All public views are cheap reductions over them.
+     */
+    private record UsageAggregate(LocalDate firstDay, double[] dayHour, boolean[] seen,
+                                  SortedMap<LocalDate, double[]> older) {
+
+        HourlySeries hourlySeries(long dataVersion) {
+            return new HourlySeries(firstDay, dayHour, older, dataVersion);
+        }
+
+        Map<Integer, Double> hourlyUsage() {
+            double[] hours = new double[HOURS];
+            for (int i = 0; i < dayHour.length; i++) {
+                hours[i % HOURS] += dayHour[i];
+            }
+            for (double[] day : older.values()) {
+                for (int h = 0; h < HOURS; h++) {
+                    hours[h] += day[h];
+                }
+            }
+            Map<Integer, Double> hourly = new TreeMap<>();
+            for (int h = 0; h < HOURS; h++) {
+                hourly.put(h, hours[h]);
+            }
+            return hourly;
+        }
+
+        Map<LocalDate, Double> dailyUsage() {
+            Map<LocalDate, Double> daily = new TreeMap<>();
+            older.forEach((day, kwh) -> daily.put(day, Arrays.stream(kwh).sum()));
+            for (int d = 0; d < seen.length; d++) {
+                if (!seen[d]) continue;
+                double total = 0.0;
+                for (int h = 0; h < HOURS; h++) {
+                    total += dayHour[d * HOURS + h];
+                }
+                daily.put(firstDay.plusDays(d), total);
+            }
+            return daily;
+        }
+
+        LoadCube weekdayHourLoad() {
+            LoadCube cube = new LoadCube(WEEKDAY_LABELS, HOURS);
+            older.forEach((day, kwh) -> addDay(cube, day.getDayOfWeek().getValue() - 1, kwh));
+            int dow = firstDay.getDayOfWeek().getValue() - 1;
+            for (int d = 0; d < seen.length; d++, dow = (dow + 1) % 7) {
+                if (!seen[d]) continue;
+                for (int h = 0; h < HOURS; h++) {
+                    cube.add(dow, h, dayHour[d * HOURS + h]);
+                }
+            }
+            return cube;
+        }
+
+        LoadCube monthHourLoad() {
+            LoadCube cube = new LoadCube(MONTH_LABELS, HOURS);
+            older.forEach((day, kwh) -> addDay(cube, day.getMonthValue() - 1, kwh));
+            for (int d = 0; d < seen.length; d++) {
+                if (!seen[d]) continue;
+                int month = firstDay.plusDays(d).getMonthValue() - 1;
+                for (int h = 0; h < HOURS; h++) {
+                    cube.add(month, h, dayHour[d * HOURS + h]);
+                }
+            }
+            return cube;
+        }
 
-        return new AnalyticsData(cafeId, hourly, daily, peaks, averageDaily, maxDaily);
+        private static void addDay(LoadCube cube, int row, double[] kwh) {
+            for (int h = 0; h < HOURS; h++) {
+                cube.add(row, h, kwh[h]);
+            }
+        }
     }
 
     /**
@@ -109,6 +249,28 @@ public class AnalyticsService
             Map<LocalDate, Double> dailyUsage,
             List<Integer> peakHours,
             double averageDailyUsage,
-            double maxDailyUsage) {
+            double maxDailyUsage,
+            LoadCube weekdayHourLoad,
+            LoadCube monthHourLoad,
+            HourlySeries hourlySeries) {
+    }
+
+    /**
+     * Dense hourly kWh series: {@code kwh[d * 24 + h]} is the total for hour {@code h}
+     * of day {@code firstDay + d}. Days without readings are zero-filled. Covers at most the
+     * latest {@link #MAX_SERIES_DAYS} days of data; {@code older} holds the hourly totals of
+     * any earlier days with readings, so totals over the full history stay possible.
+     * {@code dataVersion} is the café's data version the series was read at.
+     */
+    public record HourlySeries(LocalDate firstDay, double[] kwh, SortedMap<LocalDate, double[]> older,
+                               long dataVersion) {
+
+        public HourlySeries(LocalDate firstDay, double[] kwh) {
+            this(firstDay, kwh, Collections.emptySortedMap(), 0L);
+        }
+
+        public int days() {
+            return kwh.length / HOURS;
+        }
     }
 }
@@ -0,0 +1,167 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.AnomalyDetectionProperties;
+import com.energyoptimiser.cafe.model.AnomalyType;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming anomaly detector fed one reading at a time during ingestion.
+ * <p>
+ * Each café keeps an EWMA mean/variance per hour of day plus a small ring buffer of
+ * recent z-scores, all in primitive arrays, so memory grows with the number of cafés
+ * and not with the number of readings. Baselines live in memory only and are rebuilt
+ * from incoming data after a restart (each hour slot needs a few samples to warm up).
+ */
+public class AnomalyDetector {
+
+    private static final int HOURS = 24;
+
+    private final AnomalyDetectionProperties props;
+    private final Map<Long, CafeState> states = new ConcurrentHashMap<>();
+
+    public AnomalyDetector(AnomalyDetectionProperties props) {
+        this.props = props;
+    }
+
+    /**
+     * Feed a reading into the café's baseline and report whether it looks anomalous.
+     */
+    public Optional<Detection> observe(Long cafeId, LocalDateTime timestamp, double kwh) {
+        CafeState state = states.computeIfAbsent(cafeId, id -> new CafeState(props.getWindow()));
+        synchronized (state) {
+            return state.observe(timestamp.getHour(), kwh);
+        }
+    }
+
+    /**
+     * Start a preview over copies of the current baselines. Readings fed to the batch are
+     * scored exactly as {@link #observe} would score them, but the live baselines stay put
+     * until the same readings are observed for real, e.g. once their upload has committed.
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Number of cafés currently holding detector state.
+     */
+    public int trackedCafes() {
+        return states.size();
+    }
+
+    /**
+     * Result of a flagged reading.
+     */
+    public record Detection(AnomalyType type, double expectedKwh, double score) {
+    }
+
+    /**
+     * Scores readings against private copies of the baselines, taken on first use per café.
+     * Not thread-safe; meant for one upload.
+     */
+    public final class Batch {
+        private final Map<Long, CafeState> copies = new HashMap<>();
+
+        private Batch() {
+        }
+
+        public Optional<Detection> observe(Long cafeId, LocalDateTime timestamp, double kwh) {
+            return copies.computeIfAbsent(cafeId, AnomalyDetector.this::snapshot).observe(timestamp.getHour(), kwh);
+        }
+    }
+
+    private CafeState snapshot(Long cafeId) {
+        CafeState live = states.get(cafeId);
+        if (live == null) {
+            return new CafeState(props.getWindow());
+        }
+        synchronized (live) {
+            return live.copy();
+        }
+    }
+
+    private final class CafeState {
+        private final double[] mean = new double[HOURS];
+        private final double[] variance = new double[HOURS];
+        private final int[] samples = new int[HOURS];
+        private final double[] recentZ;
+        private int head;
+        private int filled;
+        private boolean sustained;
+
+        private CafeState(int window) {
+            this.recentZ = new double[Math.max(1, window)];
+        }
+
+        private CafeState copy() {
+            CafeState copy = new CafeState(recentZ.length);
+            System.arraycopy(mean, 0, copy.mean, 0, HOURS);
+            System.arraycopy(variance, 0, copy.variance, 0, HOURS);
+            System.arraycopy(samples, 0, copy.samples, 0, HOURS);
+            System.arraycopy(recentZ, 0, copy.recentZ, 0, recentZ.length);
+            copy.head = head;
+            copy.filled = filled;
+            copy.sustained = sustained;
+            return copy;
+        }
+
+        private Optional<Detection> observe(int hour, double kwh) {
+            int n = samples[hour];
+            if (n == 0) {
+                mean[hour] = kwh;
+                samples[hour] = 1;
+                return Optional.empty();
+            }
+
+            double expected = mean[hour];
+            double std = Math.max(Math.sqrt(variance[hour]), props.getMinStdDev());
+            double z = (kwh - expected) / std;
+            boolean warm = n >= props.getWarmupSamples();
+
+            // clamp the update so a single outlier cannot drag the baseline with it
+            double limit = props.getSpikeThreshold() * std;
+            double clamped = Math.max(expected - limit, Math.min(expected + limit, kwh));
+            double alpha = Math.max(props.getAlpha(), 1.0 / (n + 1)); // plain average while warming up
+            double diff = clamped - expected;
+            mean[hour] = expected + alpha * diff;
+            variance[hour] = (1 - alpha) * (variance[hour] + alpha * diff * diff);
+            samples[hour] = n + 1;
+
+            if (!warm) {
+                return Optional.empty();
+            }
+
+            recentZ[head] = z;
+            head = (head + 1) % recentZ.length;
+            if (filled < recentZ.length) filled++;
+
+            if (z >= props.getSpikeThreshold()) {
+                return Optional.of(new Detection(AnomalyType.SPIKE, expected, z));
+            }
+            if (z <= -props.getSpikeThreshold()) {
+                return Optional.of(new Detection(AnomalyType.DROP, expected, z));
+            }
+            return checkSustained(expected, z);
+        }
+
+        private Optional<Detection> checkSustained(double expected, double z) {
+            if (filled < recentZ.length) {
+                return Optional.empty();
+            }
+            double min = Double.MAX_VALUE;
+            for (double v : recentZ) {
+                if (v < min) min = v;
+            }
+            boolean high = min >= props.getSustainedThreshold();
+            // only report the start of a run, not every reading inside it
+            boolean started = high && !sustained;
+            sustained = high;
+            return started ? Optional.of(new Detection(AnomalyType.SUSTAINED_HIGH, expected, z)) : Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.AnomalyDetectionProperties;
+import com.energyoptimiser.cafe.dto.AnomalyResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import com.energyoptimiser.cafe.exception.CafeNotFoundException;
+import com.energyoptimiser.cafe.model.CafeProfile;
+import com.energyoptimiser.cafe.model.EnergyAnomaly;
+import com.energyoptimiser.cafe.model.EnergyReading;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
+import com.energyoptimiser.cafe.repository.EnergyAnomalyRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs incoming readings through the {@link AnomalyDetector} and persists whatever it flags.
+ */
+@Service
+public class AnomalyService {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final AnomalyDetectionProperties properties;
+    private final AnomalyDetector detector;
+    private final EnergyAnomalyRepository energyAnomalyRepository;
+    private final CafeProfileRepository cafeProfileRepository;
+
+    public AnomalyService(AnomalyDetectionProperties properties,
+                          EnergyAnomalyRepository energyAnomalyRepository,
+                          CafeProfileRepository cafeProfileRepository) {
+        this.properties = properties;
+        this.detector = new AnomalyDetector(properties);
+        this.energyAnomalyRepository = energyAnomalyRepository;
+        this.cafeProfileRepository = cafeProfileRepository;
+    }
+
+    /**
+     * Check freshly ingested readings, in order. Only flagged readings touch the database,
+     * so the common path is a handful of array updates per reading.
+     * <p>
+     * Runs inside the ingest transaction, so the anomalies commit or roll back together with
+     * their readings. The baselines are only previewed here; {@link #learn} moves them once
+     * the readings have committed.
+     */
+    @Transactional
+    public void inspect(List<EnergyReading> readings) {
+        if (!properties.isEnabled()) return;
+
+        AnomalyDetector.Batch batch = detector.batch();
+        List<EnergyAnomaly> flagged = new ArrayList<>();
+        for (EnergyReading reading : readings) {
+            CafeProfile cafe = reading.getCafe();
+            batch.observe(cafe.getId(), reading.getTimestamp(), reading.getKwh())
+                    .ifPresent(d -> flagged.add(EnergyAnomaly.builder()
+                            .cafe(cafe)
+                            .timestamp(reading.getTimestamp())
+                            .kwh(reading.getKwh())
+                            .expectedKwh(d.expectedKwh())
+                            .score(d.score())
+                            .type(d.type())
+                            .detectedAt(LocalDateTime.now())
+                            .build()));
+        }
+        if (!flagged.isEmpty()) {
+            energyAnomalyRepository.saveAll(flagged);
+        }
+    }
+
+    /**
+     * Advance the in-memory baselines with committed readings, in the order they were
+     * inspected.
+     */
+    public void learn(List<EnergyReading> readings) {
+        if (!properties.isEnabled()) return;
+
+        for (EnergyReading reading : readings) {
+            detector.observe(reading.getCafe().getId(), reading.getTimestamp(), reading.getKwh());
+        }
+    }
+
+    /**
+     * Most recent anomalies for a café, newest first.
+     */
+    @Transactional(readOnly = true)
+    public List<AnomalyResponse> getRecentAnomalies(Long cafeId, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (!cafeProfileRepository.existsById(cafeId)) {
+            throw new CafeNotFoundException(cafeId);
+        }
+        return energyAnomalyRepository.findByCafe_IdOrderByTimestampDesc(cafeId, Limit.of(limit)).stream()
+                .map(a -> new AnomalyResponse(a.getId(), a.getTimestamp(), a.getKwh(), a.getExpectedKwh(),
+                        a.getScore(), a.getType(), a.getDetectedAt()))
+                .toList();
+    }
+}
@@ -0,0 +1,51 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.dto.CafeDataVersion;
+import com.energyoptimiser.cafe.exception.CafeNotFoundException;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks the per-café data version that conditional GETs are validated against.
+ */
+@Service
+public class DataVersionService {
+
+    private final CafeProfileRepository cafeProfileRepository;
+
+    public DataVersionService(CafeProfileRepository cafeProfileRepository) {
+        this.cafeProfileRepository = cafeProfileRepository;
+    }
+
+    /**
+     * Current version of a café's data. A single primary-key lookup on CAFE_PROFILE.
+     * Read-only like the analytics it guards, so with a replica both come from the same
+     * (possibly lagging) copy and a body is never older than the version it is tagged with.
+     */
+    @Transactional(readOnly = true)
+    public CafeDataVersion current(Long cafeId) {
+        return cafeProfileRepository.findDataVersionById(cafeId)
+                .orElseThrow(() -> new CafeNotFoundException(cafeId));
+    }
+
+    /**
+     * Mark the cafés' data as changed and return their new versions by café id. Must run
+     * inside the ingesting transaction so the new version becomes visible together with the
+     * readings; in-memory models fed from that transaction are tagged with it.
+     */
+    public Map<Long, Long> bump(Collection<Long> cafeIds) {
+        Map<Long, Long> versions = new HashMap<>();
+        if (cafeIds.isEmpty()) return versions;
+        cafeProfileRepository.bumpDataVersion(cafeIds, Instant.now());
+        for (CafeDataVersion version : cafeProfileRepository.findDataVersionsByIds(cafeIds)) {
+            versions.put(version.cafeId(), version.version());
+        }
+        return versions;
+    }
+}
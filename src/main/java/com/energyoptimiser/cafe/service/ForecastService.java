@@ -0,0 +1,90 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.ForecastProperties;
+import com.energyoptimiser.cafe.dto.ForecastResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import com.energyoptimiser.cafe.model.EnergyReading;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the {@link LoadForecaster} models current during ingestion and serves forecasts.
+ * <p>
+ * Every model records the café data version it reflects. Before serving, a model behind the
+ * version of the data it is served with (missing after a restart, stale, or missing uploads
+ * ingested elsewhere) is rebuilt from the café's history. A forecast is therefore never older
+ * than the data version in the response's ETag, even before this instance's after-commit
+ * updates have run. A rebuild is tried once per data version.
+ */
+@Service
+public class ForecastService {
+
+    private final ForecastProperties properties;
+    private final LoadForecaster forecaster;
+    private final AnalyticsService analyticsService;
+    private final DataVersionService dataVersionService;
+
+    public ForecastService(ForecastProperties properties, AnalyticsService analyticsService,
+                           DataVersionService dataVersionService) {
+        this.properties = properties;
+        this.forecaster = new LoadForecaster(properties);
+        this.analyticsService = analyticsService;
+        this.dataVersionService = dataVersionService;
+    }
+
+    /**
+     * Fold a committed upload's readings for one café into its model.
+     *
+     * @param version the café's data version after the upload
+     */
+    public void observe(Long cafeId, long version, List<EnergyReading> readings) {
+        if (!properties.isEnabled()) return;
+        List<LoadForecaster.Reading> batch = new ArrayList<>(readings.size());
+        for (EnergyReading reading : readings) {
+            batch.add(new LoadForecaster.Reading(reading.getTimestamp(), reading.getKwh()));
+        }
+        forecaster.observe(cafeId, version, batch);
+    }
+
+    /**
+     * Forecast the next {@code hours} hours after the café's last complete hour of data.
+     */
+    public ForecastResponse getForecast(Long cafeId, int hours) {
+        if (hours < 1 || hours > properties.getMaxHorizon()) {
+            throw new BadRequestException("hours must be between 1 and " + properties.getMaxHorizon());
+        }
+        // a primary-key lookup; the history is only read when the model is behind
+        long version = dataVersionService.current(cafeId).version();
+        if (!forecaster.isCurrent(cafeId, version)) {
+            // throws CafeNotFoundException when the café has no readings
+            forecaster.rebuild(cafeId, analyticsService.loadHourlySeries(cafeId));
+        }
+        return forecaster.forecast(cafeId, hours)
+                .map(f -> toResponse(cafeId, f))
+                .orElseThrow(() -> new BadRequestException(
+                        "Not enough history to forecast café " + cafeId + ": at least one week of readings is needed"));
+    }
+
+    /**
+     * Forecast for the day after the café's latest data. A model behind the analytics' data
+     * version is rebuilt from the series the analytics already hold. Empty when there is too
+     * little history.
+     */
+    public Optional<LoadForecaster.Forecast> nextDay(AnalyticsService.AnalyticsData analytics) {
+        AnalyticsService.HourlySeries series = analytics.hourlySeries();
+        if (series == null) return Optional.empty();
+        if (!forecaster.isCurrent(analytics.cafeId(), series.dataVersion())) {
+            forecaster.rebuild(analytics.cafeId(), series);
+        }
+        return forecaster.forecastNextDay(analytics.cafeId());
+    }
+
+    public static ForecastResponse toResponse(Long cafeId, LoadForecaster.Forecast forecast) {
+        int peak = forecast.peakIndex();
+        return new ForecastResponse(cafeId, forecast.start(), forecast.kwh(), forecast.total(),
+                forecast.start().plusHours(peak), forecast.kwh()[peak]);
+    }
+}
@@ -1,37 +1,81 @@
 package com.energyoptimiser.cafe.service;
 
+import com.energyoptimiser.cafe.config.IngestionProperties;
 import com.energyoptimiser.cafe.dto.UploadResponse;
 import com.energyoptimiser.cafe.exception.BadRequestException;
 import com.energyoptimiser.cafe.model.CafeProfile;
 import com.energyoptimiser.cafe.model.EnergyReading;
 import com.energyoptimiser.cafe.repository.CafeProfileRepository;
 import com.energyoptimiser.cafe.repository.EnergyReadingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class IngestionService {
 
+    private static final Logger log = LoggerFactory.getLogger(IngestionService.class);
+
     private final CafeProfileRepository cafeProfileRepository;
     private final EnergyReadingRepository energyReadingRepository;
+    private final AnomalyService anomalyService;
+    private final LoadProfileIndex loadProfileIndex;
+    private final DataVersionService dataVersionService;
+    private final ForecastService forecastService;
+    private final IngestionProperties properties;
+    private final RejectedRowStore rejectedRowStore;
+    private final TransactionTemplate transactionTemplate;
 
     public IngestionService(CafeProfileRepository cafeProfileRepository,
-                            EnergyReadingRepository energyReadingRepository) {
+                            EnergyReadingRepository energyReadingRepository,
+                            AnomalyService anomalyService,
+                            LoadProfileIndex loadProfileIndex,
+                            DataVersionService dataVersionService,
+                            ForecastService forecastService,
+                            IngestionProperties properties,
+                            RejectedRowStore rejectedRowStore,
+                            PlatformTransactionManager transactionManager) {
         this.cafeProfileRepository = cafeProfileRepository;
         this.energyReadingRepository = energyReadingRepository;
+        this.anomalyService = anomalyService;
+        this.loadProfileIndex = loadProfileIndex;
+        this.dataVersionService = dataVersionService;
+        this.forecastService = forecastService;
+        this.properties = properties;
+        this.rejectedRowStore = rejectedRowStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
      * Process a CSV file with columns: name,location, timestamp, kwh
      * - Finds or creates the café profile
-     * - Persists energy readings
+     * - Persists energy readings and the anomalies found among them
+     * - Bumps the data version of every café that received readings
+     * - Once committed, feeds the readings to the anomaly baselines, the café's load
+     *   forecast and the similarity index
      */
     @Transactional
     public UploadResponse processCSV(MultipartFile file) {
@@ -42,6 +86,8 @@ public class IngestionService {
         int imported = 0;
         String status = "OK";
         Long cafeId = null;
+        Set<Long> touched = new HashSet<>();
+        List<EnergyReading> saved = new ArrayList<>();
 
         try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
             String header = br.readLine();
@@ -52,23 +98,234 @@ public class IngestionService {
             String line;
             while ((line = br.readLine()) != null) {
                 if (line.isBlank()) continue;
-                Row row = parseRow(line);
-                CafeProfile cafe = findOrCreateCafe(row.name, row.location);
-                if (cafeId == null) cafeId = cafe.getId();
-
-                EnergyReading reading = EnergyReading.builder()
-                        .cafe(cafe)
-                        .timestamp(row.timestamp)
-                        .kwh(row.kwh)
-                        .build();
-                energyReadingRepository.save(reading);
+                EnergyReading reading = persist(parseRow(line));
+                Long id = reading.getCafe().getId();
+                if (cafeId == null) cafeId = id;
+                touched.add(id);
+                saved.add(reading);
                 imported++;
             }
+            anomalyService.inspect(saved);
+            applyAfterCommit(saved, dataVersionService.bump(touched));
         } catch (Exception e) {
             throw new BadRequestException("Failed to process CSV: " + e.getMessage());
         }
 
-        return new UploadResponse(cafeId, file.getOriginalFilename(), imported, status, java.time.LocalDateTime.now());
+        return new UploadResponse(cafeId, file.getOriginalFilename(), imported, 0, status, null,
+                java.time.LocalDateTime.now());
+    }
+
+    /**
+     * Lenient variant of {@link #processCSV}: malformed rows, and rows the database refuses,
+     * are skipped and recorded instead of failing the whole file. Valid rows are committed in chunks of
+     * {@code energy.ingestion.chunk-size}, so memory and transaction size stay bounded for
+     * large files. When rows are rejected, the response carries an upload id under which the
+     * rejected rows (line number, reason, raw text) can be downloaded.
+     * <p>
+     * The upload is aborted once the rejected rows exceed the configured count or ratio;
+     * chunks committed before that point are kept.
+     */
+    public UploadResponse processCSVLenient(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("File must not be empty");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        RejectedRowReport report = new RejectedRowReport(uploadId, file.getOriginalFilename(),
+                properties.getMaxReportedRows());
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        List<ParsedRow> chunk = new ArrayList<>(Math.min(chunkSize, 4096));
+        int imported = 0;
+        int processed = 0;
+        Long cafeId = null;
+
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String header = br.readLine();
+            if (header == null || !header.equals("name,location,timestamp,kwh")) {
+                throw new BadRequestException(
+                        "CSV header does not match expected columns. Expected: name,location,timestamp,kwh. Found: " + header);
+            }
+            String line;
+            int lineNumber = 1;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                processed++;
+                try {
+                    chunk.add(new ParsedRow(lineNumber, line, parseRow(line)));
+                } catch (RuntimeException e) {
+                    report.reject(lineNumber, rejectionReason(e), line);
+                    checkRejectionLimits(report, processed, imported);
+                }
+                if (chunk.size() >= chunkSize) {
+                    ChunkResult result = importChunk(chunk, report);
+                    if (cafeId == null) cafeId = result.firstCafeId();
+                    imported += result.imported();
+                    chunk.clear();
+                    checkRejectionLimits(report, processed, imported);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                ChunkResult result = importChunk(chunk, report);
+                if (cafeId == null) cafeId = result.firstCafeId();
+                imported += result.imported();
+                checkRejectionLimits(report, processed, imported);
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Failed to read CSV: " + e.getMessage());
+        } finally {
+            if (report.rejectedCount() > 0) {
+                rejectedRowStore.save(report);
+            }
+        }
+
+        int rejected = report.rejectedCount();
+        return new UploadResponse(cafeId, file.getOriginalFilename(), imported, rejected,
+                rejected == 0 ? "OK" : "PARTIAL", rejected == 0 ? null : uploadId, LocalDateTime.now());
+    }
+
+    /**
+     * Rejected rows recorded for a recent lenient upload.
+     */
+    public RejectedRowReport getRejectedRows(String uploadId) {
+        return rejectedRowStore.get(uploadId);
+    }
+
+    /**
+     * Commit a chunk of parsed rows. If the database refuses the chunk (e.g. a constraint
+     * violation), it has been rolled back as a whole, so its rows are retried one at a time:
+     * the ones that can be saved still are, the others are rejected with the database's reason.
+     * Only database and commit failures are retried; anything else is a bug and propagates.
+     */
+    private ChunkResult importChunk(List<ParsedRow> chunk, RejectedRowReport report) {
+        List<Row> rows = new ArrayList<>(chunk.size());
+        for (ParsedRow parsed : chunk) {
+            rows.add(parsed.row());
+        }
+        try {
+            return new ChunkResult(commitChunk(rows), rows.size());
+        } catch (DataAccessException | TransactionException e) {
+            return importRowByRow(chunk, report);
+        }
+    }
+
+    private ChunkResult importRowByRow(List<ParsedRow> chunk, RejectedRowReport report) {
+        Long first = null;
+        int imported = 0;
+        for (ParsedRow parsed : chunk) {
+            try {
+                Long id = commitChunk(List.of(parsed.row()));
+                if (first == null) first = id;
+                imported++;
+            } catch (DataAccessException | TransactionException e) {
+                report.reject(parsed.lineNumber(), rejectionReason(e), parsed.line());
+            }
+        }
+        return new ChunkResult(first, imported);
+    }
+
+    private Long commitChunk(List<Row> rows) {
+        return transactionTemplate.execute(tx -> {
+            Long first = null;
+            Set<Long> touched = new HashSet<>();
+            List<EnergyReading> saved = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                EnergyReading reading = persist(row);
+                Long id = reading.getCafe().getId();
+                if (first == null) first = id;
+                touched.add(id);
+                saved.add(reading);
+            }
+            anomalyService.inspect(saved);
+            applyAfterCommit(saved, dataVersionService.bump(touched));
+            return first;
+        });
+    }
+
+    private void checkRejectionLimits(RejectedRowReport report, int processed, int imported) {
+        int rejected = report.rejectedCount();
+        boolean tooMany = rejected > properties.getMaxRejectedRows();
+        boolean tooHighRatio = processed >= properties.getRatioMinRows()
+                && (double) rejected / processed > properties.getMaxRejectedRatio();
+        if (tooMany || tooHighRatio) {
+            throw new BadRequestException("Aborted CSV upload after " + rejected + " of " + processed
+                    + " rows were rejected; " + imported + " rows were already imported. Rejected rows: upload "
+                    + report.uploadId());
+        }
+    }
+
+    private static String rejectionReason(RuntimeException e) {
+        if (e instanceof DateTimeParseException dtpe) {
+            return "Invalid timestamp: " + dtpe.getParsedString();
+        }
+        if (e instanceof NumberFormatException) {
+            return "Invalid kWh value: " + e.getMessage();
+        }
+        if (e instanceof DataAccessException dae) {
+            return "Could not be saved: " + dae.getMostSpecificCause().getMessage();
+        }
+        return e.getMessage();
+    }
+
+    /**
+     * Save one reading (and its café, if new) and return it.
+     */
+    private EnergyReading persist(Row row) {
+        CafeProfile cafe = findOrCreateCafe(row.name, row.location);
+        EnergyReading reading = EnergyReading.builder()
+                .cafe(cafe)
+                .timestamp(row.timestamp)
+                .kwh(row.kwh)
+                .build();
+        energyReadingRepository.save(reading);
+        return reading;
+    }
+
+    /**
+     * Feed saved readings to the anomaly baselines, the forecast and the similarity index once the
+     * surrounding transaction commits. Their state lives in memory and a rollback cannot undo
+     * it, so readings from a failed upload must never reach them (a corrected re-upload would
+     * otherwise be counted twice). Applied immediately when no transaction is active.
+     * <p>
+     * Best effort: by then the readings are committed, so a failure here must not fail (and
+     * invite a re-upload of) the upload. It is logged instead; the forecast model and the
+     * similarity index are left behind the data version and reload on their next read.
+     *
+     * @param versions the cafés' data versions as bumped by this transaction
+     */
+    private void applyAfterCommit(List<EnergyReading> readings, Map<Long, Long> versions) {
+        if (readings.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(readings, versions);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(readings, versions);
+            }
+        });
+    }
+
+    private void apply(List<EnergyReading> readings, Map<Long, Long> versions) {
+        try {
+            update(readings, versions);
+        } catch (RuntimeException e) {
+            log.warn("Could not update in-memory models with {} committed readings", readings.size(), e);
+        }
+    }
+
+    private void update(List<EnergyReading> readings, Map<Long, Long> versions) {
+        anomalyService.learn(readings);
+        Map<Long, List<EnergyReading>> byCafe = new LinkedHashMap<>();
+        for (EnergyReading reading : readings) {
+            byCafe.computeIfAbsent(reading.getCafe().getId(), id -> new ArrayList<>()).add(reading);
+        }
+        byCafe.forEach((cafeId, cafeReadings) -> {
+            long version = versions.get(cafeId);
+            loadProfileIndex.accumulate(cafeId, version, cafeReadings);
+            forecastService.observe(cafeId, version, cafeReadings);
+        });
     }
 
     private CafeProfile findOrCreateCafe(String name, String location) {
@@ -95,9 +352,24 @@ public class IngestionService {
         String kwhStr = parts[3].trim();
 
         LocalDateTime timestamp = LocalDateTime.parse(ts, DateTimeFormatter.ISO_DATE_TIME);
+        LocalDateTime now = LocalDateTime.now();
+        // analytics size their series by the span of dates, so keep stray years out
+        if (timestamp.isBefore(now.minusYears(properties.getMaxReadingAgeYears()))
+                || timestamp.isAfter(now.plus(properties.getMaxClockSkew()))) {
+            throw new BadRequestException("Implausible timestamp: " + ts);
+        }
         double kwh = Double.parseDouble(kwhStr);
+        // parseDouble accepts NaN and Infinity, which would poison every sum they reach
+        if (!Double.isFinite(kwh) || kwh < 0) {
+            throw new BadRequestException("Invalid kWh value: " + kwhStr);
+        }
         return new Row(name, location, timestamp, kwh);
     }
 
     private record Row(String name, String location, LocalDateTime timestamp, double kwh) {}
+
+    /** A row of a lenient upload with where it came from, so a failed save can be reported. */
+    private record ParsedRow(int lineNumber, String line, Row row) {}
+
+    private record ChunkResult(Long firstCafeId, int imported) {}
 }
@@ -0,0 +1,78 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.dto.CafeSummaryResponse;
+import com.energyoptimiser.cafe.dto.CursorPageResponse;
+import com.energyoptimiser.cafe.dto.ReadingResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import com.energyoptimiser.cafe.exception.CafeNotFoundException;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
+import com.energyoptimiser.cafe.repository.EnergyReadingRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Keyset-paginated browsing of cafés and their readings.
+ * <p>
+ * Each page is fetched as "rows after the last key of the previous page" with one extra row to
+ * tell whether another page exists, so no page needs OFFSET or a COUNT query. Rows are
+ * projected straight into DTOs.
+ */
+@Service
+public class ListingService {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final CafeProfileRepository cafeProfileRepository;
+    private final EnergyReadingRepository energyReadingRepository;
+
+    public ListingService(CafeProfileRepository cafeProfileRepository,
+                          EnergyReadingRepository energyReadingRepository) {
+        this.cafeProfileRepository = cafeProfileRepository;
+        this.energyReadingRepository = energyReadingRepository;
+    }
+
+    /**
+     * Cafés ordered by id.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CafeSummaryResponse> listCafes(String cursor, int limit) {
+        checkLimit(limit);
+        long afterId = PageCursor.decodeCafes(cursor);
+        List<CafeSummaryResponse> rows = cafeProfileRepository.findPageAfter(afterId, Limit.of(limit + 1));
+        if (rows.size() <= limit) {
+            return new CursorPageResponse<>(rows, null);
+        }
+        List<CafeSummaryResponse> page = rows.subList(0, limit);
+        return new CursorPageResponse<>(List.copyOf(page), PageCursor.cafes(page.getLast().id()));
+    }
+
+    /**
+     * A café's readings ordered by timestamp, with the reading id breaking ties.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ReadingResponse> listReadings(Long cafeId, String cursor, int limit) {
+        checkLimit(limit);
+        PageCursor.ReadingPosition after = PageCursor.decodeReadings(cursor, cafeId);
+        if (after == null && !cafeProfileRepository.existsById(cafeId)) {
+            throw new CafeNotFoundException(cafeId);
+        }
+        List<ReadingResponse> rows = after == null
+                ? energyReadingRepository.findFirstPage(cafeId, Limit.of(limit + 1))
+                : energyReadingRepository.findPageAfter(cafeId, after.timestamp(), after.id(), Limit.of(limit + 1));
+        if (rows.size() <= limit) {
+            return new CursorPageResponse<>(rows, null);
+        }
+        List<ReadingResponse> page = rows.subList(0, limit);
+        ReadingResponse last = page.getLast();
+        return new CursorPageResponse<>(List.copyOf(page), PageCursor.readings(cafeId, last.timestamp(), last.id()));
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.energyoptimiser.cafe.service;
+
+import java.util.List;
+
+/**
+ * Two-dimensional load aggregate (e.g. day-of-week × hour-of-day) stored in flat,
+ * row-major primitive arrays. Each cell tracks total kWh, how many day-hour slots
+ * contributed, and the largest single day-hour total seen.
+ */
+public final class LoadCube {
+
+    private final List<String> rowLabels;
+    private final int columns;
+    private final double[] sum;
+    private final int[] count;
+    private final double[] max;
+
+    public LoadCube(List<String> rowLabels, int columns) {
+        this.rowLabels = List.copyOf(rowLabels);
+        this.columns = columns;
+        int cells = rowLabels.size() * columns;
+        this.sum = new double[cells];
+        this.count = new int[cells];
+        this.max = new double[cells];
+    }
+
+    /**
+     * Record one day-hour total for the given cell.
+     */
+    public void add(int row, int column, double kwh) {
+        int i = row * columns + column;
+        sum[i] += kwh;
+        if (count[i] == 0 || kwh > max[i]) max[i] = kwh;
+        count[i]++;
+    }
+
+    public List<String> rowLabels() {
+        return rowLabels;
+    }
+
+    public int rows() {
+        return rowLabels.size();
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public double sum(int row, int column) {
+        return sum[row * columns + column];
+    }
+
+    public double max(int row, int column) {
+        return max[row * columns + column];
+    }
+
+    public int count(int row, int column) {
+        return count[row * columns + column];
+    }
+
+    public double mean(int row, int column) {
+        int i = row * columns + column;
+        return count[i] == 0 ? 0.0 : sum[i] / count[i];
+    }
+
+    /**
+     * Flat index (row * columns + column) of the cell with the highest mean, or -1 when empty.
+     */
+    public int busiestCell() {
+        int best = -1;
+        double bestMean = 0.0;
+        for (int i = 0; i < sum.length; i++) {
+            if (count[i] == 0) continue;
+            double m = sum[i] / count[i];
+            if (best < 0 || m > bestMean) {
+                best = i;
+                bestMean = m;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,383 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.ForecastProperties;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental hourly load forecaster, one model per café.
+ * <p>
+ * Each model is an additive Holt-Winters model with a damped trend and two seasonal cycles,
+ * hour of day (24) and hour of week (168), in the style of Taylor's double-seasonal method.
+ * Readings are summed into the current hour; when a later hour starts, the finished hour
+ * updates level, trend and both seasonal slots in O(1). The first week of hours only fills
+ * a warm-up buffer used to initialise the model. Readings older than the current hour
+ * cannot be folded in incrementally, so they mark the model stale and it is rebuilt from
+ * history on the next forecast request.
+ * <p>
+ * Each model also records the café data version it reflects, so readers can tell whether it
+ * is behind the data they serve (ingested on another instance, say) and rebuild it first.
+ */
+public class LoadForecaster {
+
+    static final int DAY = 24;
+    static final int WEEK = 7 * DAY;
+    /** Data version of a model that reflects no known version of the café's data. */
+    private static final long NO_VERSION = -1;
+
+    private final ForecastProperties props;
+    private final Map<Long, Model> models = new ConcurrentHashMap<>();
+
+    public LoadForecaster(ForecastProperties props) {
+        this.props = props;
+    }
+
+    /**
+     * Add one ingested reading to the café's model.
+     */
+    public void observe(Long cafeId, LocalDateTime timestamp, double kwh) {
+        Model model = models.computeIfAbsent(cafeId, id -> new Model());
+        synchronized (model) {
+            model.observe(epochHour(timestamp), kwh);
+        }
+    }
+
+    /**
+     * Add the readings of one committed upload, which moved the café's data to {@code version}.
+     * Readings a rebuild already covers (the model is at {@code version} or later) are skipped.
+     * If the model was not exactly one version behind, e.g. another instance ingested in
+     * between, the readings still count but the model keeps its version, so
+     * {@link #isCurrent} reports it behind until it is rebuilt.
+     */
+    public void observe(Long cafeId, long version, List<Reading> readings) {
+        Model model = models.computeIfAbsent(cafeId, id -> new Model());
+        synchronized (model) {
+            if (model.dataVersion >= version) return;
+            for (Reading reading : readings) {
+                model.observe(epochHour(reading.timestamp()), reading.kwh());
+            }
+            // version 1 is a café's first upload, so even a brand-new model has seen all of it
+            if (model.dataVersion == version - 1 || (model.dataVersion == NO_VERSION && version == 1)) {
+                model.dataVersion = version;
+            }
+        }
+    }
+
+    /**
+     * True when the café has an initialised, up-to-date model.
+     */
+    public boolean isReady(Long cafeId) {
+        Model model = models.get(cafeId);
+        if (model == null) return false;
+        synchronized (model) {
+            return model.initialised && !model.stale;
+        }
+    }
+
+    /**
+     * True when the café's model reflects at least data version {@code version} and needs no
+     * rebuild. A model that is not initialised (less than a week of data) still counts as
+     * current once rebuilt at that version, so it is not rebuilt again until new data arrives.
+     */
+    public boolean isCurrent(Long cafeId, long version) {
+        Model model = models.get(cafeId);
+        if (model == null) return false;
+        synchronized (model) {
+            return !model.stale && model.dataVersion >= version;
+        }
+    }
+
+    /**
+     * Replace the café's model with one replayed from its full hourly history.
+     * Days without any readings are treated as gaps rather than zero load. The last hour with
+     * data stays open, as it would after live ingestion, so later readings for it still count.
+     * The model only moves forward: a history older than the version the model already
+     * reflects is discarded (the same version replaces a stale model).
+     * <p>
+     * The rebuilt state is copied into the café's existing model under its lock rather than
+     * swapped in, so an {@link #observe} that already holds the old model is never lost.
+     *
+     * @return whether the rebuilt model was installed
+     */
+    public boolean rebuild(Long cafeId, AnalyticsService.HourlySeries series) {
+        Model rebuilt = new Model();
+        double[] kwh = series.kwh();
+        long firstHour = series.firstDay().toEpochDay() * DAY;
+        int end = kwh.length;
+        while (end > 0 && kwh[end - 1] == 0.0) end--; // the last day is usually partial
+        int open = end - 1;
+        for (int d = 0; d * DAY < open; d++) {
+            int from = d * DAY;
+            int to = Math.min(from + DAY, open);
+            if (isEmptyDay(kwh, from, to)) continue;
+            for (int i = from; i < to; i++) {
+                rebuilt.close(firstHour + i, kwh[i]);
+            }
+        }
+        if (open >= 0) {
+            rebuilt.openHour = firstHour + open;
+            rebuilt.openKwh = kwh[open];
+        }
+
+        Model model = models.computeIfAbsent(cafeId, id -> new Model());
+        synchronized (model) {
+            boolean newer = series.dataVersion() > model.dataVersion
+                    || (series.dataVersion() == model.dataVersion && model.stale);
+            if (!newer) return false;
+            model.copyFrom(rebuilt);
+            model.dataVersion = series.dataVersion();
+            return true;
+        }
+    }
+
+    /**
+     * Forecast the {@code hours} hours following the café's last complete hour.
+     * Empty when the café has no initialised model.
+     */
+    public Optional<Forecast> forecast(Long cafeId, int hours) {
+        Model model = models.get(cafeId);
+        if (model == null) return Optional.empty();
+        synchronized (model) {
+            if (!model.initialised) return Optional.empty();
+            return Optional.of(model.forecast(hours));
+        }
+    }
+
+    /**
+     * Forecast for the calendar day after the café's last complete hour.
+     */
+    public Optional<Forecast> forecastNextDay(Long cafeId) {
+        Model model = models.get(cafeId);
+        if (model == null) return Optional.empty();
+        synchronized (model) {
+            if (!model.initialised) return Optional.empty();
+            int untilMidnight = (int) (DAY - Math.floorMod(model.lastHour + 1, DAY)) % DAY;
+            Forecast f = model.forecast(untilMidnight + DAY);
+            double[] day = Arrays.copyOfRange(f.kwh(), untilMidnight, untilMidnight + DAY);
+            return Optional.of(new Forecast(f.start().plusHours(untilMidnight), day));
+        }
+    }
+
+    /**
+     * One ingested reading.
+     */
+    public record Reading(LocalDateTime timestamp, double kwh) {
+    }
+
+    /**
+     * Hourly forecast starting at {@code start}; {@code kwh[i]} covers hour {@code start + i}.
+     */
+    public record Forecast(LocalDateTime start, double[] kwh) {
+
+        public LocalDate day() {
+            return start.toLocalDate();
+        }
+
+        public int peakIndex() {
+            int best = 0;
+            for (int i = 1; i < kwh.length; i++) {
+                if (kwh[i] > kwh[best]) best = i;
+            }
+            return best;
+        }
+
+        public double total() {
+            double sum = 0.0;
+            for (double v : kwh) sum += v;
+            return sum;
+        }
+    }
+
+    private static long epochHour(LocalDateTime timestamp) {
+        return Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), 3600);
+    }
+
+    private static boolean isEmptyDay(double[] kwh, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (kwh[i] != 0.0) return false;
+        }
+        return true;
+    }
+
+    private final class Model {
+        private final double[] daily = new double[DAY];
+        private final double[] weekly = new double[WEEK];
+        private double[] warmup;
+        private long warmupStart;
+        private double level;
+        private double trend;
+        private long lastHour = Long.MIN_VALUE;
+        private long openHour = Long.MIN_VALUE;
+        private double openKwh;
+        private boolean initialised;
+        private boolean stale;
+        private long dataVersion = NO_VERSION;
+
+        private void observe(long hour, double kwh) {
+            if (lastHour != Long.MIN_VALUE && hour <= lastHour) {
+                stale = true;
+            } else if (openHour == Long.MIN_VALUE || hour == openHour) {
+                openHour = hour;
+                openKwh += kwh;
+            } else if (hour > openHour) {
+                close(openHour, openKwh);
+                openHour = hour;
+                openKwh = kwh;
+            } else {
+                stale = true;
+            }
+        }
+
+        /**
+         * Feed a complete hour's total.
+         */
+        private void close(long hour, double y) {
+            if (lastHour != Long.MIN_VALUE && hour - lastHour - 1 > props.getMaxGapHours()) {
+                reset();
+            }
+            if (!initialised) {
+                warm(hour, y);
+            } else {
+                for (long h = lastHour + 1; h < hour; h++) {
+                    skip();
+                }
+                update(hour, y);
+            }
+            lastHour = hour;
+            if (openHour != Long.MIN_VALUE && openHour <= hour) {
+                openHour = hour + 1;
+                openKwh = 0.0;
+            }
+        }
+
+        private void warm(long hour, double y) {
+            if (warmup == null) {
+                warmup = new double[WEEK];
+                Arrays.fill(warmup, Double.NaN);
+                warmupStart = hour;
+            }
+            int i = (int) (hour - warmupStart);
+            if (i < WEEK) {
+                warmup[i] = y;
+                return;
+            }
+            if (!initialise()) {
+                warmup = null;
+                warm(hour, y);
+                return;
+            }
+            for (long h = warmupStart + WEEK; h < hour; h++) {
+                skip();
+            }
+            update(hour, y);
+        }
+
+        /**
+         * Level = mean of the warm-up week, daily slots = mean deviation per hour of day,
+         * weekly slots = what is left. Needs at least a day's worth of hours.
+         */
+        private boolean initialise() {
+            double sum = 0.0;
+            int n = 0;
+            for (double v : warmup) {
+                if (!Double.isNaN(v)) {
+                    sum += v;
+                    n++;
+                }
+            }
+            if (n < DAY) return false;
+            level = sum / n;
+            trend = 0.0;
+
+            double[] dev = new double[DAY];
+            int[] count = new int[DAY];
+            for (int i = 0; i < WEEK; i++) {
+                if (Double.isNaN(warmup[i])) continue;
+                int d = (int) Math.floorMod(warmupStart + i, DAY);
+                dev[d] += warmup[i] - level;
+                count[d]++;
+            }
+            for (int d = 0; d < DAY; d++) {
+                daily[d] = count[d] == 0 ? 0.0 : dev[d] / count[d];
+            }
+            for (int i = 0; i < WEEK; i++) {
+                long h = warmupStart + i;
+                weekly[(int) Math.floorMod(h, WEEK)] = Double.isNaN(warmup[i]) ? 0.0
+                        : warmup[i] - level - daily[(int) Math.floorMod(h, DAY)];
+            }
+            warmup = null;
+            initialised = true;
+            return true;
+        }
+
+        private void update(long hour, double y) {
+            int d = (int) Math.floorMod(hour, DAY);
+            int w = (int) Math.floorMod(hour, WEEK);
+            double s1 = daily[d];
+            double s2 = weekly[w];
+            double phi = props.getDamping();
+            double previous = level;
+            level = props.getAlpha() * (y - s1 - s2) + (1 - props.getAlpha()) * (level + phi * trend);
+            trend = props.getBeta() * (level - previous) + (1 - props.getBeta()) * phi * trend;
+            daily[d] = props.getDailyGamma() * (y - level - s2) + (1 - props.getDailyGamma()) * s1;
+            weekly[w] = props.getWeeklyGamma() * (y - level - s1) + (1 - props.getWeeklyGamma()) * s2;
+        }
+
+        /**
+         * Advance one hour with no observation: follow the damped trend, leave seasonals alone.
+         */
+        private void skip() {
+            level += props.getDamping() * trend;
+            trend *= props.getDamping();
+        }
+
+        private Forecast forecast(int hours) {
+            double[] kwh = new double[hours];
+            double phi = props.getDamping();
+            double damped = 0.0;
+            double phiPow = 1.0;
+            for (int m = 1; m <= hours; m++) {
+                phiPow *= phi;
+                damped += phiPow;
+                long h = lastHour + m;
+                double v = level + damped * trend + daily[(int) Math.floorMod(h, DAY)] + weekly[(int) Math.floorMod(h, WEEK)];
+                kwh[m - 1] = Math.max(0.0, v);
+            }
+            LocalDateTime start = LocalDateTime.ofEpochSecond((lastHour + 1) * 3600, 0, ZoneOffset.UTC);
+            return new Forecast(start, kwh);
+        }
+
+        /**
+         * Take over another model's state; the data version is left to the caller.
+         */
+        private void copyFrom(Model other) {
+            System.arraycopy(other.daily, 0, daily, 0, DAY);
+            System.arraycopy(other.weekly, 0, weekly, 0, WEEK);
+            warmup = other.warmup;
+            warmupStart = other.warmupStart;
+            level = other.level;
+            trend = other.trend;
+            lastHour = other.lastHour;
+            openHour = other.openHour;
+            openKwh = other.openKwh;
+            initialised = other.initialised;
+            stale = false;
+        }
+
+        private void reset() {
+            Arrays.fill(daily, 0.0);
+            Arrays.fill(weekly, 0.0);
+            warmup = null;
+            level = 0.0;
+            trend = 0.0;
+            initialised = false;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.model.EnergyReading;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory nearest-neighbour index over café load profiles.
+ * <p>
+ * Every café owns one fixed-width row in contiguous primitive arrays: raw kWh totals for the
+ * 24-hour profile followed by the 7×24 weekday profile, and a normalized float copy (each
+ * profile scaled to sum to 1, so cafés of different size compare by shape). Ingestion adds
+ * readings to the raw totals in O(1); dirty rows are re-normalized lazily before the next
+ * query. A query is a single linear pass over the float rows, which stays well under a
+ * millisecond for tens of thousands of cafés.
+ * <p>
+ * Each row also records the café data version it reflects, so a row that missed uploads
+ * (ingested by another instance) can be told apart from a current one and reloaded.
+ */
+@Component
+public class LoadProfileIndex {
+
+    static final int HOURS = 24;
+    static final int WEEK_HOURS = 7 * HOURS;
+    private static final int WIDTH = HOURS + WEEK_HOURS;
+    private static final int INITIAL_CAPACITY = 256;
+    static final long NO_VERSION = -1;
+
+    public enum Metric { COSINE, EUCLIDEAN }
+
+    public enum Profile {
+        DAILY(0, HOURS), WEEKLY(HOURS, WEEK_HOURS);
+
+        private final int offset;
+        private final int length;
+
+        Profile(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private double[] raw = new double[INITIAL_CAPACITY * WIDTH];
+    private float[] normalized = new float[INITIAL_CAPACITY * WIDTH];
+    private float[] norms = new float[INITIAL_CAPACITY * 2];
+    private boolean[] dirty = new boolean[INITIAL_CAPACITY];
+    private int size;
+    private volatile int dirtyCount;
+
+    /**
+     * Add a single ingested reading to the café's running profile.
+     */
+    public void accumulate(Long cafeId, LocalDateTime timestamp, double kwh) {
+        int hour = timestamp.getHour();
+        int dow = timestamp.getDayOfWeek().getValue() - 1;
+        lock.writeLock().lock();
+        try {
+            int slot = slotFor(cafeId);
+            int base = slot * WIDTH;
+            raw[base + hour] += kwh;
+            raw[base + HOURS + dow * HOURS + hour] += kwh;
+            markDirty(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add the readings of one committed upload, which moved the café to data {@code version}.
+     * Skipped when the row already reflects that version (a reload read them); when uploads
+     * in between are missing, the readings are still added but the row keeps its older
+     * version, so {@link #version} reports it as behind until it is reloaded.
+     */
+    public void accumulate(Long cafeId, long version, List<EnergyReading> readings) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slots.get(cafeId);
+            long current = existing == null ? NO_VERSION : versions[existing];
+            if (current >= version) return;
+            int slot = slotFor(cafeId);
+            int base = slot * WIDTH;
+            for (EnergyReading reading : readings) {
+                int hour = reading.getTimestamp().getHour();
+                int dow = reading.getTimestamp().getDayOfWeek().getValue() - 1;
+                raw[base + hour] += reading.getKwh();
+                raw[base + HOURS + dow * HOURS + hour] += reading.getKwh();
+            }
+            if (current == version - 1 || (existing == null && version == 1)) {
+                versions[slot] = version;
+            }
+            markDirty(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace a café's profile with exact totals computed from its full history.
+     *
+     * @param hourly  kWh per hour of day (24 values)
+     * @param weekday kWh per weekday × hour cube (7 rows)
+     */
+    public void put(Long cafeId, double[] hourly, LoadCube weekday) {
+        lock.writeLock().lock();
+        try {
+            int slot = slotFor(cafeId);
+            int base = slot * WIDTH;
+            System.arraycopy(hourly, 0, raw, base, HOURS);
+            for (int r = 0; r < 7; r++) {
+                for (int h = 0; h < HOURS; h++) {
+                    raw[base + HOURS + r * HOURS + h] = weekday == null ? 0.0 : weekday.sum(r, h);
+                }
+            }
+            markDirty(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace a café's profile with weekday × hour totals, {@code weekHour[dow * 24 + hour]}
+     * with Monday first, read at data {@code version}. The 24-hour profile is their per-hour
+     * sum. Only moves forward: returns false and keeps the row when it already reflects a
+     * newer version (e.g. an upload committed while the totals were being read).
+     */
+    public boolean put(Long cafeId, double[] weekHour, long version) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slots.get(cafeId);
+            if (existing != null && versions[existing] > version) return false;
+            int slot = slotFor(cafeId);
+            int base = slot * WIDTH;
+            Arrays.fill(raw, base, base + HOURS, 0.0);
+            for (int i = 0; i < WEEK_HOURS; i++) {
+                raw[base + i % HOURS] += weekHour[i];
+            }
+            System.arraycopy(weekHour, 0, raw, base + HOURS, WEEK_HOURS);
+            versions[slot] = version;
+            markDirty(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(Long cafeId) {
+        lock.readLock().lock();
+        try {
+            return slots.containsKey(cafeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The latest café data version the café's row fully reflects, or {@link #NO_VERSION} when
+     * the café is not indexed. Behind the café's current version when uploads were missed.
+     */
+    public long version(Long cafeId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(cafeId);
+            return slot == null ? NO_VERSION : versions[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the {@code k} cafés whose profile is closest to the given café's, nearest first.
+     * Returns an empty result when the café is not indexed.
+     */
+    public Neighbours nearest(Long cafeId, int k, Metric metric, Profile profile) {
+        if (dirtyCount > 0) {
+            normalizeDirty();
+        }
+        lock.readLock().lock();
+        try {
+            Integer query = slots.get(cafeId);
+            if (query == null || k <= 0 || size < 2) {
+                return new Neighbours(new long[0], new double[0]);
+            }
+
+            int n = Math.min(k, size - 1);
+            long[] bestIds = new long[n];
+            double[] bestDist = new double[n];
+            Arrays.fill(bestDist, Double.MAX_VALUE);
+            int found = 0;
+
+            int q = query * WIDTH + profile.offset;
+            float qNorm = norms[query * 2 + profile.ordinal()];
+            for (int slot = 0; slot < size; slot++) {
+                if (slot == query) continue;
+                double d = distance(q, qNorm, slot, metric, profile);
+                if (found < n) {
+                    found++;
+                } else if (d >= bestDist[n - 1]) {
+                    continue;
+                }
+                // insertion into the sorted top-k arrays
+                int i = found - 1;
+                while (i > 0 && bestDist[i - 1] > d) {
+                    bestDist[i] = bestDist[i - 1];
+                    bestIds[i] = bestIds[i - 1];
+                    i--;
+                }
+                bestDist[i] = d;
+                bestIds[i] = ids[slot];
+            }
+            return new Neighbours(bestIds, bestDist);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double distance(int q, float qNorm, int slot, Metric metric, Profile profile) {
+        int o = slot * WIDTH + profile.offset;
+        if (metric == Metric.COSINE) {
+            float norm = norms[slot * 2 + profile.ordinal()];
+            if (qNorm == 0f || norm == 0f) return 1.0;
+            float dot = 0f;
+            for (int i = 0; i < profile.length; i++) {
+                dot += normalized[q + i] * normalized[o + i];
+            }
+            return 1.0 - dot / (qNorm * norm);
+        }
+        float sq = 0f;
+        for (int i = 0; i < profile.length; i++) {
+            float diff = normalized[q + i] - normalized[o + i];
+            sq += diff * diff;
+        }
+        return Math.sqrt(sq);
+    }
+
+    private void normalizeDirty() {
+        lock.writeLock().lock();
+        try {
+            for (int slot = 0; slot < size && dirtyCount > 0; slot++) {
+                if (!dirty[slot]) continue;
+                for (Profile p : Profile.values()) {
+                    normalizeRow(slot, p);
+                }
+                dirty[slot] = false;
+                dirtyCount--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void normalizeRow(int slot, Profile p) {
+        int o = slot * WIDTH + p.offset;
+        double total = 0.0;
+        for (int i = 0; i < p.length; i++) {
+            total += raw[o + i];
+        }
+        double sq = 0.0;
+        for (int i = 0; i < p.length; i++) {
+            float v = total > 0 ? (float) (raw[o + i] / total) : 0f;
+            normalized[o + i] = v;
+            sq += v * v;
+        }
+        norms[slot * 2 + p.ordinal()] = (float) Math.sqrt(sq);
+    }
+
+    private void markDirty(int slot) {
+        if (!dirty[slot]) {
+            dirty[slot] = true;
+            dirtyCount++;
+        }
+    }
+
+    private int slotFor(Long cafeId) {
+        Integer slot = slots.get(cafeId);
+        if (slot != null) return slot;
+        if (size == ids.length) grow();
+        ids[size] = cafeId;
+        versions[size] = NO_VERSION;
+        slots.put(cafeId, size);
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        raw = Arrays.copyOf(raw, capacity * WIDTH);
+        normalized = Arrays.copyOf(normalized, capacity * WIDTH);
+        norms = Arrays.copyOf(norms, capacity * 2);
+        dirty = Arrays.copyOf(dirty, capacity);
+    }
+
+    /**
+     * Nearest cafés and their distances, nearest first.
+     */
+    public record Neighbours(long[] cafeIds, double[] distances) {
+    }
+}
@@ -0,0 +1,201 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.dto.CafeDataVersion;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
+import com.energyoptimiser.cafe.repository.EnergyReadingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Fills the {@link LoadProfileIndex} with every café's profile, so similarity queries rank
+ * against all cafés and not just the ones touched since boot. Ingestion keeps the index
+ * current from then on.
+ * <p>
+ * The load starts in the background once the application is ready, so startup time does not
+ * grow with the readings table; {@link #isReady()} stays false until it has finished. One
+ * grouped aggregate (kWh by café, weekday and hour) streamed from the primary database;
+ * a read-write transaction keeps it off a possibly lagging replica. Its repeatable-read
+ * snapshot tags each profile with the data version it was read at.
+ * <p>
+ * Uploads committed by other instances never reach this instance's index, so
+ * {@link #refresh()} periodically reloads every café whose data version has moved past its
+ * indexed one.
+ */
+@Component
+public class LoadProfileIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadProfileIndexLoader.class);
+    private static final int HOURS = LoadProfileIndex.HOURS;
+    private static final long REFRESH_INTERVAL_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private final EnergyReadingRepository energyReadingRepository;
+    private final CafeProfileRepository cafeProfileRepository;
+    private final LoadProfileIndex loadProfileIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final Environment environment;
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private volatile boolean ready;
+    private volatile long refreshedAt;
+
+    public LoadProfileIndexLoader(EnergyReadingRepository energyReadingRepository,
+                                  CafeProfileRepository cafeProfileRepository,
+                                  LoadProfileIndex loadProfileIndex,
+                                  PlatformTransactionManager transactionManager,
+                                  Environment environment) {
+        this.energyReadingRepository = energyReadingRepository;
+        this.cafeProfileRepository = cafeProfileRepository;
+        this.loadProfileIndex = loadProfileIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.environment = environment;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // the class-data-sharing training run (spring.context.exit=onRefresh) has no database
+        if (environment.containsProperty("spring.context.exit")) return;
+        warmUp();
+    }
+
+    /**
+     * Start a background {@link #load()} unless the index is loaded or a load is running.
+     * A failed load leaves the index not ready, and the next call tries again.
+     */
+    public void warmUp() {
+        if (ready) return;
+        inBackground("load-profile-index-loader", () -> {
+            int cafes = load();
+            log.info("Loaded {} café load profiles into the similarity index", cafes);
+        });
+    }
+
+    /**
+     * Start a background {@link #catchUp()} if the last one is at least 30 seconds old and
+     * nothing else is loading. Called on similarity queries, so an idle instance stays idle.
+     */
+    public void refresh() {
+        if (!ready || System.nanoTime() - refreshedAt < REFRESH_INTERVAL_NANOS) return;
+        inBackground("load-profile-index-refresh", () -> {
+            refreshedAt = System.nanoTime();
+            int cafes = catchUp();
+            if (cafes > 0) {
+                log.info("Reloaded {} café load profiles changed by other instances", cafes);
+            }
+        });
+    }
+
+    /**
+     * Whether every café's profile has been loaded at least once.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * (Re)load every café with readings into the index and return how many were loaded.
+     */
+    public int load() {
+        Integer loaded = transactionTemplate.execute(tx -> {
+            Map<Long, Long> versions = new HashMap<>();
+            for (CafeDataVersion version : cafeProfileRepository.findAllDataVersions()) {
+                versions.put(version.cafeId(), version.version());
+            }
+            int cafes = 0;
+            long current = -1;
+            double[] weekHour = new double[LoadProfileIndex.WEEK_HOURS];
+            try (Stream<EnergyReadingRepository.WeekHourTotal> rows = energyReadingRepository.streamWeekHourTotals()) {
+                for (var it = rows.iterator(); it.hasNext(); ) {
+                    EnergyReadingRepository.WeekHourTotal row = it.next();
+                    if (row.getCafeId() != current) {
+                        if (current >= 0) {
+                            loadProfileIndex.put(current, weekHour, versions.getOrDefault(current, 0L));
+                            cafes++;
+                        }
+                        current = row.getCafeId();
+                        Arrays.fill(weekHour, 0.0);
+                    }
+                    add(weekHour, row);
+                }
+            }
+            if (current >= 0) {
+                loadProfileIndex.put(current, weekHour, versions.getOrDefault(current, 0L));
+                cafes++;
+            }
+            return cafes;
+        });
+        refreshedAt = System.nanoTime();
+        ready = true;
+        return loaded == null ? 0 : loaded;
+    }
+
+    /**
+     * Load a single café into the index, e.g. one whose readings were committed by another
+     * instance. Returns false when the café has no readings.
+     */
+    public boolean load(Long cafeId) {
+        double[] weekHour = new double[LoadProfileIndex.WEEK_HOURS];
+        Long version = transactionTemplate.execute(tx -> {
+            long v = cafeProfileRepository.findDataVersionById(cafeId).map(CafeDataVersion::version).orElse(0L);
+            List<EnergyReadingRepository.WeekHourTotal> rows = energyReadingRepository.findWeekHourTotals(cafeId);
+            if (rows.isEmpty()) return null;
+            for (EnergyReadingRepository.WeekHourTotal row : rows) {
+                add(weekHour, row);
+            }
+            return v;
+        });
+        if (version == null) return false;
+        loadProfileIndex.put(cafeId, weekHour, version);
+        return true;
+    }
+
+    /**
+     * Reload every café whose data version is ahead of its indexed one and return how many
+     * were reloaded. One scan of the café versions, then one grouped query per changed café.
+     */
+    public int catchUp() {
+        List<CafeDataVersion> versions = transactionTemplate.execute(tx -> cafeProfileRepository.findAllDataVersions());
+        int reloaded = 0;
+        for (CafeDataVersion version : versions == null ? List.<CafeDataVersion>of() : versions) {
+            // version 0: nothing ingested yet
+            if (version.version() > 0 && loadProfileIndex.version(version.cafeId()) < version.version()
+                    && load(version.cafeId())) {
+                reloaded++;
+            }
+        }
+        return reloaded;
+    }
+
+    private void inBackground(String name, Runnable task) {
+        if (!loading.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name(name).start(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Could not load the similarity index; retrying on the next similarity query", e);
+            } finally {
+                loading.set(false);
+            }
+        });
+    }
+
+    private static void add(double[] weekHour, EnergyReadingRepository.WeekHourTotal row) {
+        // 1 = Sunday ... 7 = Saturday -> Monday-first index
+        int dow = (row.getDayOfWeek() + 5) % 7;
+        weekHour[dow * HOURS + row.getHour()] += row.getKwh();
+    }
+}
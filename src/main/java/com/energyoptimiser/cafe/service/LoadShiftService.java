@@ -0,0 +1,203 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.LoadShiftProperties;
+import com.energyoptimiser.cafe.config.TariffProperties;
+import com.energyoptimiser.cafe.dto.LoadShiftRequest;
+import com.energyoptimiser.cafe.dto.LoadShiftResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * What-if load shifting: where should the café's shiftable appliances run to lower its peak
+ * or its energy bill? Works on the typical week from {@link AnalyticsService} (mean kWh per
+ * weekday and hour) and hands the search to the {@link LoadShiftSimulator}, whose pool is shut
+ * down with the application context.
+ */
+@Service
+public class LoadShiftService implements DisposableBean {
+
+    private static final int HOURS = LoadShiftSimulator.HOURS;
+    private static final int DEFAULT_SCHEDULES = 3;
+    // rounding slack when an appliance accounts for all of an hour's recorded load
+    private static final double LOAD_TOLERANCE_KWH = 1e-6;
+
+    private final LoadShiftProperties properties;
+    private final TariffProperties tariffProperties;
+    private final AnalyticsService analyticsService;
+    private final TariffService tariffService;
+    private final LoadShiftSimulator simulator;
+
+    public LoadShiftService(LoadShiftProperties properties,
+                            TariffProperties tariffProperties,
+                            AnalyticsService analyticsService,
+                            TariffService tariffService) {
+        this.properties = properties;
+        this.tariffProperties = tariffProperties;
+        this.analyticsService = analyticsService;
+        this.tariffService = tariffService;
+        this.simulator = new LoadShiftSimulator(properties.getParallelism());
+    }
+
+    @Override
+    public void destroy() {
+        simulator.close();
+    }
+
+    /**
+     * Search start hours for the requested appliances and return the best schedules found.
+     * The appliances are assumed to be part of the recorded load today, at their current start hours,
+     * so together they may not draw more than was recorded in any of those hours.
+     */
+    public LoadShiftResponse simulate(Long cafeId, LoadShiftRequest request) {
+        if (request == null || request.appliances() == null || request.appliances().isEmpty()) {
+            throw new BadRequestException("At least one appliance is required");
+        }
+        List<LoadShiftRequest.Appliance> appliances = request.appliances();
+        if (appliances.size() > properties.getMaxAppliances()) {
+            throw new BadRequestException("At most " + properties.getMaxAppliances() + " appliances are supported");
+        }
+        LoadShiftSimulator.Objective objective = parseObjective(request.objective());
+        int keep = request.schedules() == null ? DEFAULT_SCHEDULES : request.schedules();
+        if (keep < 1 || keep > properties.getMaxSchedules()) {
+            throw new BadRequestException("schedules must be between 1 and " + properties.getMaxSchedules());
+        }
+
+        int n = appliances.size();
+        double[] kw = new double[n];
+        int[] duration = new int[n];
+        int[] current = new int[n];
+        int[][] starts = new int[n][];
+        for (int a = 0; a < n; a++) {
+            LoadShiftRequest.Appliance appliance = appliances.get(a);
+            validate(appliance);
+            duration[a] = appliance.durationHours();
+            kw[a] = appliance.kwh() / duration[a];
+            current[a] = appliance.currentStartHour();
+            starts[a] = allowedStarts(appliance);
+        }
+
+        // throws CafeNotFoundException when the café has no readings
+        AnalyticsService.AnalyticsData analytics = analyticsService.computeAnalytics(cafeId);
+        LoadCube cube = analytics.weekdayHourLoad();
+        if (cube == null) {
+            throw new BadRequestException("No readings to simulate for café " + cafeId);
+        }
+        Optional<Tariff> tariff = tariffService.tariffFor(cafeId);
+        if (objective == LoadShiftSimulator.Objective.COST && tariff.isEmpty()) {
+            throw new BadRequestException("No tariff applies to café " + cafeId + "; use objective=peak");
+        }
+        double[] rates = tariff.map(Tariff::rates).orElse(null);
+
+        // the typical week covers the weekdays with readings; the others stay empty
+        double[] base = new double[LoadShiftSimulator.WEEK_HOURS];
+        boolean[] days = new boolean[7];
+        for (int dow = 0; dow < 7; dow++) {
+            for (int h = 0; h < HOURS; h++) {
+                base[dow * HOURS + h] = cube.mean(dow, h);
+                if (cube.count(dow, h) > 0) days[dow] = true;
+            }
+        }
+        // take the appliances out of the recorded load; the simulator puts them back. An hour
+        // without readings recorded nothing to take them out of.
+        for (int a = 0; a < n; a++) {
+            for (int dow = 0; dow < 7; dow++) {
+                for (int h = current[a]; h < current[a] + duration[a]; h++) {
+                    if (cube.count(dow, h) == 0) continue;
+                    int i = dow * HOURS + h;
+                    base[i] -= kw[a];
+                    if (base[i] < -LOAD_TOLERANCE_KWH) {
+                        throw new BadRequestException("Appliance '" + appliances.get(a).name() + "' draws "
+                                + String.format("%.2f", kw[a]) + " kWh per hour from hour " + current[a]
+                                + ", more than the recorded load left at hour " + h + " on "
+                                + cube.rowLabels().get(dow) + " (" + String.format("%.2f", base[i] + kw[a])
+                                + " kWh); check its kwh, durationHours and currentStartHour");
+                    }
+                }
+            }
+        }
+
+        LoadShiftSimulator.Problem problem =
+                new LoadShiftSimulator.Problem(base, days, rates, kw, duration, starts, current, objective);
+        LoadShiftSimulator.Schedule baseline = LoadShiftSimulator.evaluate(problem, current);
+        List<LoadShiftSimulator.Schedule> found = simulator.search(problem,
+                properties.getRestarts(), properties.getMaxPasses(), keep);
+
+        List<LoadShiftResponse.Schedule> schedules = new ArrayList<>(found.size());
+        for (LoadShiftSimulator.Schedule s : found) {
+            List<LoadShiftResponse.Placement> placements = new ArrayList<>(n);
+            for (int a = 0; a < n; a++) {
+                placements.add(new LoadShiftResponse.Placement(appliances.get(a).name(), current[a],
+                        s.starts()[a], s.starts()[a] + duration[a]));
+            }
+            schedules.add(new LoadShiftResponse.Schedule(placements, s.peak(), baseline.peak() - s.peak(),
+                    rates == null ? null : s.cost(), rates == null ? null : baseline.cost() - s.cost()));
+        }
+        return new LoadShiftResponse(cafeId, objective.name().toLowerCase(Locale.ROOT),
+                tariff.map(Tariff::name).orElse(null), rates == null ? null : tariffProperties.getCurrency(),
+                baseline.peak(), rates == null ? null : baseline.cost(), schedules);
+    }
+
+    private static LoadShiftSimulator.Objective parseObjective(String objective) {
+        if (objective == null) return LoadShiftSimulator.Objective.PEAK;
+        return switch (objective.toLowerCase(Locale.ROOT)) {
+            case "peak" -> LoadShiftSimulator.Objective.PEAK;
+            case "cost" -> LoadShiftSimulator.Objective.COST;
+            default -> throw new BadRequestException("Unknown objective: " + objective + " (expected peak or cost)");
+        };
+    }
+
+    private static void validate(LoadShiftRequest.Appliance appliance) {
+        String name = appliance.name();
+        if (name == null || name.isBlank()) {
+            throw new BadRequestException("Every appliance needs a name");
+        }
+        if (!(appliance.kwh() > 0)) {
+            throw new BadRequestException("Appliance '" + name + "': kwh must be positive");
+        }
+        int duration = appliance.durationHours();
+        if (duration < 1 || duration > HOURS) {
+            throw new BadRequestException("Appliance '" + name + "': durationHours must be between 1 and " + HOURS);
+        }
+        Integer current = appliance.currentStartHour();
+        if (current == null || current < 0 || current + duration > HOURS) {
+            throw new BadRequestException("Appliance '" + name + "': currentStartHour must be between 0 and "
+                    + (HOURS - duration));
+        }
+    }
+
+    /**
+     * Start hours, ascending, at which the whole run fits inside one of the appliance's windows.
+     */
+    private static int[] allowedStarts(LoadShiftRequest.Appliance appliance) {
+        int duration = appliance.durationHours();
+        boolean[] allowed = new boolean[HOURS];
+        if (appliance.windows() == null || appliance.windows().isEmpty()) {
+            for (int s = 0; s + duration <= HOURS; s++) allowed[s] = true;
+        } else {
+            for (LoadShiftRequest.Window w : appliance.windows()) {
+                if (w.fromHour() < 0 || w.toHour() > HOURS || w.fromHour() >= w.toHour()) {
+                    throw new BadRequestException("Appliance '" + appliance.name() + "': window " + w.fromHour()
+                            + "-" + w.toHour() + " must satisfy 0 <= fromHour < toHour <= " + HOURS);
+                }
+                for (int s = w.fromHour(); s + duration <= w.toHour(); s++) allowed[s] = true;
+            }
+        }
+        int count = 0;
+        for (boolean b : allowed) if (b) count++;
+        if (count == 0) {
+            throw new BadRequestException("Appliance '" + appliance.name() + "': a " + duration
+                    + "-hour run fits none of its windows");
+        }
+        int[] starts = new int[count];
+        for (int s = 0, i = 0; s < HOURS; s++) {
+            if (allowed[s]) starts[i++] = s;
+        }
+        return starts;
+    }
+}
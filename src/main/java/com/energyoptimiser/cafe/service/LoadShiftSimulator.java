@@ -0,0 +1,334 @@
+package com.energyoptimiser.cafe.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Searches daily start hours for shiftable appliances against a café's typical week.
+ * <p>
+ * The week is 168 hourly kWh values (Monday 00:00 first, as in {@link Tariff}). An appliance
+ * drawing {@code kw} for {@code duration} hours from start hour {@code s} adds that load to the
+ * same hours on every day the café has readings for. Each restart builds a schedule greedily in some appliance order and
+ * then re-places one appliance at a time at its best start until a full pass moves nothing.
+ * Restarts run in parallel on a fork-join pool; each leaf task owns its scratch arrays, so the
+ * candidate evaluations in the inner loops allocate nothing. Restart {@code r} always uses the
+ * same order, so results do not depend on how the work was split.
+ * <p>
+ * The pool is not managed by the container; whoever creates a simulator closes it.
+ */
+final class LoadShiftSimulator implements AutoCloseable {
+
+    static final int HOURS = 24;
+    static final int WEEK_HOURS = 7 * HOURS;
+    private static final int RESTARTS_PER_TASK = 2;
+
+    enum Objective { PEAK, COST }
+
+    /**
+     * @param base      typical week without any of the appliances (168 values)
+     * @param days      weekdays (Monday first) with readings; appliances only run on these, so a
+     *                  weekday the café has no data for stays empty rather than appliance-only
+     * @param rates     price per kWh for each hour of the week, or null when no tariff applies
+     * @param kw        per appliance, kWh drawn in each hour it runs
+     * @param duration  per appliance, run length in hours
+     * @param starts    per appliance, allowed start hours of day
+     * @param current   per appliance, today's start hour
+     */
+    record Problem(double[] base, boolean[] days, double[] rates, double[] kw, int[] duration, int[][] starts,
+                   int[] current, Objective objective) {
+
+        int appliances() {
+            return kw.length;
+        }
+    }
+
+    /**
+     * Start hour per appliance with the resulting weekly peak (kWh in the busiest hour) and
+     * weekly cost (NaN without rates).
+     */
+    record Schedule(int[] starts, double peak, double cost) {
+    }
+
+    private final ForkJoinPool pool;
+
+    LoadShiftSimulator(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Shut the pool down, letting running searches finish; later searches are rejected.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * Best {@code keep} distinct schedules found by {@code restarts} local searches, best first.
+     * Restart 0 starts from today's schedule, restart 1 places the largest appliances first and
+     * the rest use random orders.
+     */
+    List<Schedule> search(Problem problem, int restarts, int maxPasses, int keep) {
+        return pool.invoke(new SearchTask(problem, 0, Math.max(1, restarts), maxPasses, keep));
+    }
+
+    /**
+     * Weekly peak and cost of the problem's base week with the appliances started at {@code starts}.
+     */
+    static Schedule evaluate(Problem problem, int[] starts) {
+        double[] load = problem.base().clone();
+        for (int a = 0; a < problem.appliances(); a++) {
+            add(load, problem.days(), starts[a], starts[a] + problem.duration()[a], problem.kw()[a]);
+        }
+        return evaluate(load, problem.rates(), starts);
+    }
+
+    /**
+     * Weekly peak and cost of a plain load profile.
+     */
+    static Schedule evaluate(double[] load, double[] rates, int[] starts) {
+        double peak = 0.0;
+        double cost = 0.0;
+        for (int h = 0; h < WEEK_HOURS; h++) {
+            peak = Math.max(peak, load[h]);
+            if (rates != null) cost += load[h] * rates[h];
+        }
+        return new Schedule(starts, peak, rates == null ? Double.NaN : cost);
+    }
+
+    /**
+     * Add {@code kw} to hours {@code [from, to)} of every active day.
+     */
+    private static void add(double[] load, boolean[] days, int from, int to, double kw) {
+        for (int d = 0; d < 7; d++) {
+            if (!days[d]) continue;
+            int base = d * HOURS;
+            for (int hour = from; hour < to; hour++) {
+                load[base + hour] += kw;
+            }
+        }
+    }
+
+    private static int compare(Objective objective, Schedule a, Schedule b) {
+        int c = objective == Objective.COST
+                ? compareThen(a.cost(), b.cost(), a.peak(), b.peak())
+                : compareThen(a.peak(), b.peak(), a.cost(), b.cost());
+        return c != 0 ? c : Arrays.compare(a.starts(), b.starts());
+    }
+
+    private static int compareThen(double a1, double b1, double a2, double b2) {
+        int c = Double.compare(a1, b1);
+        return c != 0 ? c : Double.compare(a2, b2);
+    }
+
+    /**
+     * Insert into the sorted list of best schedules unless an identical schedule is already there.
+     */
+    private static void offer(List<Schedule> best, Schedule candidate, Objective objective, int keep) {
+        int at = best.size();
+        for (int i = 0; i < best.size(); i++) {
+            Schedule s = best.get(i);
+            if (Arrays.equals(s.starts(), candidate.starts())) return;
+            if (at == best.size() && compare(objective, candidate, s) < 0) at = i;
+        }
+        if (at >= keep) return;
+        best.add(at, candidate);
+        if (best.size() > keep) best.removeLast();
+    }
+
+    private static final class SearchTask extends RecursiveTask<List<Schedule>> {
+
+        private final Problem problem;
+        private final int from;
+        private final int to;
+        private final int maxPasses;
+        private final int keep;
+
+        private SearchTask(Problem problem, int from, int to, int maxPasses, int keep) {
+            this.problem = problem;
+            this.from = from;
+            this.to = to;
+            this.maxPasses = maxPasses;
+            this.keep = keep;
+        }
+
+        @Override
+        protected List<Schedule> compute() {
+            if (to - from <= RESTARTS_PER_TASK) {
+                Search search = new Search(problem, maxPasses);
+                List<Schedule> best = new ArrayList<>(keep + 1);
+                for (int r = from; r < to; r++) {
+                    offer(best, search.run(r), problem.objective(), keep);
+                }
+                return best;
+            }
+            int mid = (from + to) >>> 1;
+            SearchTask left = new SearchTask(problem, from, mid, maxPasses, keep);
+            left.fork();
+            List<Schedule> right = new SearchTask(problem, mid, to, maxPasses, keep).compute();
+            List<Schedule> best = left.join();
+            for (Schedule s : right) {
+                offer(best, s, problem.objective(), keep);
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Scratch state for one worker, reused across its restarts.
+     */
+    private static final class Search {
+
+        private final Problem p;
+        private final int maxPasses;
+        private final double[] load = new double[WEEK_HOURS];
+        private final int[] starts;
+        private final int[] order;
+
+        // score of the last candidate passed to score(): primary objective, then tie-breaker
+        private double primary;
+        private double secondary;
+
+        private Search(Problem p, int maxPasses) {
+            this.p = p;
+            this.maxPasses = maxPasses;
+            this.starts = new int[p.appliances()];
+            this.order = new int[p.appliances()];
+        }
+
+        private Schedule run(int restart) {
+            int n = p.appliances();
+            System.arraycopy(p.base(), 0, load, 0, WEEK_HOURS);
+            for (int i = 0; i < n; i++) order[i] = i;
+
+            if (restart == 0) {
+                for (int a = 0; a < n; a++) {
+                    starts[a] = p.current()[a];
+                    place(a, starts[a], 1.0);
+                }
+            } else {
+                if (restart == 1) {
+                    largestFirst();
+                } else {
+                    shuffle(new SplittableRandom(restart));
+                }
+                for (int i = 0; i < n; i++) {
+                    int a = order[i];
+                    starts[a] = bestStart(a, -1);
+                    place(a, starts[a], 1.0);
+                }
+            }
+
+            for (int pass = 0; pass < maxPasses; pass++) {
+                boolean moved = false;
+                for (int i = 0; i < n; i++) {
+                    int a = order[i];
+                    place(a, starts[a], -1.0);
+                    int s = bestStart(a, starts[a]);
+                    place(a, s, 1.0);
+                    if (s != starts[a]) {
+                        starts[a] = s;
+                        moved = true;
+                    }
+                }
+                if (!moved) break;
+            }
+            return evaluate(load, p.rates(), starts.clone());
+        }
+
+        /**
+         * Best allowed start for appliance {@code a} given everything else already placed.
+         * {@code stay} wins ties, so improvement passes terminate.
+         */
+        private int bestStart(int a, int stay) {
+            int[] allowed = p.starts()[a];
+            int best = -1;
+            double bestPrimary = 0.0;
+            double bestSecondary = 0.0;
+            if (Arrays.binarySearch(allowed, stay) >= 0) {
+                score(a, stay);
+                best = stay;
+                bestPrimary = primary;
+                bestSecondary = secondary;
+            }
+            for (int s : allowed) {
+                if (s == stay) continue;
+                score(a, s);
+                if (best < 0 || primary < bestPrimary || (primary == bestPrimary && secondary < bestSecondary)) {
+                    best = s;
+                    bestPrimary = primary;
+                    bestSecondary = secondary;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Score the week with appliance {@code a} started at {@code s}, without changing it.
+         * Peak is ranked by the busiest hour and then by the sum of squares (flatter is better);
+         * cost by the appliance's own running cost and then by the peak.
+         */
+        private void score(int a, int s) {
+            double kw = p.kw()[a];
+            int end = s + p.duration()[a];
+            double[] rates = p.rates();
+            boolean[] days = p.days();
+            double peak = 0.0;
+            double squares = 0.0;
+            double cost = 0.0;
+            for (int d = 0, h = 0; d < 7; d++) {
+                for (int hour = 0; hour < HOURS; hour++, h++) {
+                    double v = load[h];
+                    if (days[d] && hour >= s && hour < end) {
+                        v += kw;
+                        if (rates != null) cost += kw * rates[h];
+                    }
+                    if (v > peak) peak = v;
+                    squares += v * v;
+                }
+            }
+            if (p.objective() == Objective.COST) {
+                primary = cost;
+                secondary = peak;
+            } else {
+                primary = peak;
+                secondary = squares;
+            }
+        }
+
+        private void place(int a, int s, double sign) {
+            add(load, p.days(), s, s + p.duration()[a], sign * p.kw()[a]);
+        }
+
+        private void largestFirst() {
+            // insertion sort by daily kWh, descending; n is small and this avoids boxing
+            for (int i = 1; i < order.length; i++) {
+                int a = order[i];
+                double size = energy(a);
+                int j = i - 1;
+                while (j >= 0 && energy(order[j]) < size) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = a;
+            }
+        }
+
+        private double energy(int a) {
+            return p.kw()[a] * p.duration()[a];
+        }
+
+        private void shuffle(SplittableRandom random) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package com.energyoptimiser.cafe.service;
 
+import com.energyoptimiser.cafe.dto.CompactInsightsResponse;
+import com.energyoptimiser.cafe.dto.CostSummaryResponse;
+import com.energyoptimiser.cafe.dto.ForecastResponse;
 import com.energyoptimiser.cafe.dto.InsightsResponse;
+import com.energyoptimiser.cafe.dto.LoadCubeResponse;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Provides simple rule-based recommendations based on analytics data.
@@ -12,7 +25,27 @@ import java.util.List;
 @Service
 public class OptimizationService {
 
+    /** Length of the window suggested for deferrable loads such as dishwashers and ice machines. */
+    private static final int DEFERRABLE_WINDOW_HOURS = 2;
+
+    /** Most weekday × hour peak slots named in a recommendation. */
+    private static final int MAX_PEAK_SLOTS = 5;
+
+    private final TariffService tariffService;
+    private final ForecastService forecastService;
+
+    public OptimizationService(TariffService tariffService, ForecastService forecastService) {
+        this.tariffService = tariffService;
+        this.forecastService = forecastService;
+    }
+
     public List<String> generateRecommendations(AnalyticsService.AnalyticsData analytics) {
+        return generateRecommendations(analytics, tariffService.costForCafe(analytics),
+                forecastService.nextDay(analytics));
+    }
+
+    private List<String> generateRecommendations(AnalyticsService.AnalyticsData analytics, CostSummaryResponse cost,
+                                                 Optional<LoadForecaster.Forecast> forecast) {
         List<String> recs = new ArrayList<>();
 
         if (analytics.hourlyUsage().isEmpty()) {
@@ -20,8 +53,16 @@ public class OptimizationService {
             return recs;
         }
 
-        // Peak-shifting suggestions
-        if (!analytics.peakHours().isEmpty()) {
+        // Peak-shifting suggestions, per weekday and hour when the cube is available
+        LoadCube cube = analytics.weekdayHourLoad();
+        List<Integer> slots = peakSlots(cube);
+        if (!slots.isEmpty()) {
+            List<String> labels = new ArrayList<>();
+            for (int slot : slots) {
+                labels.add(cube.rowLabels().get(slot / cube.columns()) + " " + slot % cube.columns() + ":00");
+            }
+            recs.add("Consider shifting non-essential loads away from peak slot(s): " + String.join(", ", labels));
+        } else if (!analytics.peakHours().isEmpty()) {
             recs.add("Consider shifting non-essential loads away from peak hour(s): " + analytics.peakHours());
         }
 
@@ -30,13 +71,37 @@ public class OptimizationService {
             recs.add("Daily usage variability is high. Explore staggering equipment startup and using timers.");
         }
 
-        // Hour-specific hints
-        for (Integer hour : analytics.peakHours()) {
-            double kwh = analytics.hourlyUsage().getOrDefault(hour, 0.0);
-            if (kwh > 0) {
-                recs.add("Hour " + hour + ": schedule dishwasher/ice machine defrost outside this hour if possible.");
+        // Money at stake under the café's tariff
+        if (cost != null && cost.peakShiftSavings() > 0) {
+            recs.add("Shifting movable load out of peak hour(s) " + analytics.peakHours() + " to the cheapest off-peak hour would save ~"
+                    + String.format("%.2f", cost.peakShiftSavings()) + " " + cost.currency() + " on the '" + cost.tariff() + "' tariff.");
+        }
+
+        // Day-of-week × hour patterns that the flat 24-hour profile hides
+        recs.addAll(weekdayRecommendations(cube));
+
+        // Tomorrow's predicted peaks, for pre-scheduling deferrable equipment
+        forecast.ifPresent(f -> recs.addAll(forecastRecommendations(f)));
+
+        // One hint for deferrable equipment, covering the peak slots and tomorrow's forecast peak
+        SortedSet<Integer> avoid = new TreeSet<>();
+        if (!slots.isEmpty()) {
+            for (int slot : slots) {
+                avoid.add(slot % cube.columns());
+            }
+        } else {
+            for (Integer hour : analytics.peakHours()) {
+                if (analytics.hourlyUsage().getOrDefault(hour, 0.0) > 0) avoid.add(hour);
             }
         }
+        forecast.filter(f -> f.total() > 0).ifPresent(f -> {
+            for (int h = Math.max(0, f.peakIndex() - 1); h <= Math.min(23, f.peakIndex() + 1); h++) {
+                avoid.add(h);
+            }
+        });
+        if (!avoid.isEmpty()) {
+            recs.add("Schedule dishwasher/ice machine defrost outside hour(s) " + avoid + " if possible.");
+        }
 
         // Baseline optimization
         double baseline = analytics.hourlyUsage().values().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
@@ -51,19 +116,191 @@ public class OptimizationService {
         return recs;
     }
 
+    private List<String> weekdayRecommendations(LoadCube cube) {
+        List<String> recs = new ArrayList<>();
+        if (cube == null) return recs;
+
+        int busiest = cube.busiestCell();
+        if (busiest < 0) return recs;
+        int row = busiest / cube.columns();
+        int hour = busiest % cube.columns();
+        recs.add("Busiest slot is " + cube.rowLabels().get(row) + " at hour " + hour + " (avg "
+                + String.format("%.2f", cube.mean(row, hour)) + " kWh, max "
+                + String.format("%.2f", cube.max(row, hour)) + " kWh). Plan staffing and equipment starts around it.");
+
+        double weekday = averageDailyLoad(cube, 0, 5);
+        double weekend = averageDailyLoad(cube, 5, 7);
+        if (weekday > 0 && weekend > weekday * 1.25) {
+            recs.add("Weekend days use ~" + String.format("%.0f", (weekend / weekday - 1) * 100)
+                    + "% more energy than weekdays. Review weekend opening routines separately.");
+        } else if (weekend > 0 && weekday > weekend * 1.25) {
+            recs.add("Weekdays use ~" + String.format("%.0f", (weekday / weekend - 1) * 100)
+                    + "% more energy than weekends. Focus load shifting on weekday peaks.");
+        }
+        return recs;
+    }
+
+    private List<String> forecastRecommendations(LoadForecaster.Forecast forecast) {
+        List<String> recs = new ArrayList<>();
+        double[] kwh = forecast.kwh();
+        if (forecast.total() <= 0) return recs;
+
+        int peak = forecast.peakIndex();
+        recs.add("Forecast for " + forecast.day() + ": load peaks at hour " + peak + " (~"
+                + String.format("%.2f", kwh[peak]) + " kWh).");
+
+        int best = 0;
+        double bestLoad = Double.MAX_VALUE;
+        for (int h = 0; h + DEFERRABLE_WINDOW_HOURS <= kwh.length; h++) {
+            double load = 0.0;
+            for (int i = h; i < h + DEFERRABLE_WINDOW_HOURS; i++) {
+                load += kwh[i];
+            }
+            if (load < bestLoad) {
+                best = h;
+                bestLoad = load;
+            }
+        }
+        recs.add("Lowest forecast load on " + forecast.day() + " is hours " + best + "-" + (best + DEFERRABLE_WINDOW_HOURS)
+                + " (~" + String.format("%.2f", bestLoad / DEFERRABLE_WINDOW_HOURS)
+                + " kWh/h). Pre-schedule dishwasher and ice machine cycles there.");
+        return recs;
+    }
+
+    /**
+     * Flat indices of the cube's peak cells, busiest first: cells whose mean is at least one
+     * standard deviation above the mean of all cells with data, or the top three when none is.
+     * Empty when there is no cube or it holds no data.
+     */
+    private static List<Integer> peakSlots(LoadCube cube) {
+        if (cube == null) return List.of();
+
+        List<Integer> cells = new ArrayList<>();
+        double total = 0.0;
+        for (int i = 0; i < cube.rows() * cube.columns(); i++) {
+            if (cube.count(i / cube.columns(), i % cube.columns()) == 0) continue;
+            cells.add(i);
+            total += mean(cube, i);
+        }
+        if (cells.isEmpty()) return List.of();
+
+        double average = total / cells.size();
+        double variance = 0.0;
+        for (int i : cells) {
+            variance += Math.pow(mean(cube, i) - average, 2);
+        }
+        double threshold = average + Math.sqrt(variance / cells.size());
+
+        cells.sort(Comparator.comparingDouble((Integer i) -> mean(cube, i)).reversed());
+        int peaks = 0;
+        while (peaks < cells.size() && mean(cube, cells.get(peaks)) >= threshold) peaks++;
+        // if none met the threshold (a perfectly flat week), fall back to the top 3
+        int keep = peaks == 0 ? 3 : peaks;
+        return List.copyOf(cells.subList(0, Math.min(Math.min(keep, MAX_PEAK_SLOTS), cells.size())));
+    }
+
+    private static double mean(LoadCube cube, int cell) {
+        return cube.mean(cell / cube.columns(), cell % cube.columns());
+    }
+
+    /**
+     * Mean daily kWh across cube rows [fromRow, toRow), counting only rows with data.
+     */
+    private double averageDailyLoad(LoadCube cube, int fromRow, int toRow) {
+        double total = 0.0;
+        int rows = 0;
+        for (int r = fromRow; r < toRow; r++) {
+            if (cube.count(r, 0) == 0) continue;
+            for (int h = 0; h < cube.columns(); h++) {
+                total += cube.mean(r, h);
+            }
+            rows++;
+        }
+        return rows == 0 ? 0.0 : total / rows;
+    }
+
+    private LoadCubeResponse toResponse(LoadCube cube) {
+        if (cube == null) return null;
+        double[][] sum = new double[cube.rows()][cube.columns()];
+        double[][] mean = new double[cube.rows()][cube.columns()];
+        double[][] max = new double[cube.rows()][cube.columns()];
+        for (int r = 0; r < cube.rows(); r++) {
+            for (int c = 0; c < cube.columns(); c++) {
+                sum[r][c] = cube.sum(r, c);
+                mean[r][c] = cube.mean(r, c);
+                max[r][c] = cube.max(r, c);
+            }
+        }
+        return new LoadCubeResponse(cube.rowLabels(), sum, mean, max);
+    }
+
     /**
      * Convenience method to build an InsightsResponse DTO from analytics and generated recommendations.
      * This ensures the DTO is used at the service layer, even without a controller present.
      */
     public InsightsResponse generateInsights(AnalyticsService.AnalyticsData analytics) {
-        List<String> recs = generateRecommendations(analytics);
+        CostSummaryResponse cost = tariffService.costForCafe(analytics);
+        Optional<LoadForecaster.Forecast> forecast = forecastService.nextDay(analytics);
+        List<String> recs = generateRecommendations(analytics, cost, forecast);
         return new InsightsResponse(
                 analytics.hourlyUsage(),
                 analytics.dailyUsage(),
                 analytics.peakHours(),
                 analytics.averageDailyUsage(),
                 analytics.maxDailyUsage(),
-                recs
+                recs,
+                toResponse(analytics.weekdayHourLoad()),
+                toResponse(analytics.monthHourLoad()),
+                cost,
+                forecast.map(f -> ForecastService.toResponse(analytics.cafeId(), f)).orElse(null)
+        );
+    }
+
+    /**
+     * Same insights as {@link #generateInsights}, with the hourly profile as a 24-element array and
+     * the daily usage and cost as dense arrays from a start date, instead of maps keyed by hour and date.
+     */
+    public CompactInsightsResponse generateCompactInsights(AnalyticsService.AnalyticsData analytics) {
+        CostSummaryResponse cost = tariffService.costForCafe(analytics);
+        Optional<LoadForecaster.Forecast> forecast = forecastService.nextDay(analytics);
+        List<String> recs = generateRecommendations(analytics, cost, forecast);
+
+        double[] hourly = new double[24];
+        analytics.hourlyUsage().forEach((h, kwh) -> hourly[h] = kwh);
+        NavigableMap<LocalDate, Double> daily = new TreeMap<>(analytics.dailyUsage());
+        LocalDate start = daily.isEmpty() ? null : daily.firstKey();
+        if (start != null) {
+            // same window as the dense hourly series, so a stray old date can't size the arrays
+            LocalDate earliest = daily.lastKey().minusDays(AnalyticsService.MAX_SERIES_DAYS - 1);
+            if (start.isBefore(earliest)) start = earliest;
+        }
+        int days = start == null ? 0 : (int) ChronoUnit.DAYS.between(start, daily.lastKey()) + 1;
+
+        CostSummaryResponse compactCost = cost == null ? null : new CostSummaryResponse(cost.tariff(), cost.currency(),
+                cost.energyCost(), cost.demandCharges(), cost.totalCost(), cost.costByHour(), null, cost.peakShiftSavings());
+        return new CompactInsightsResponse(
+                hourly,
+                start,
+                1,
+                dense(daily, start, days),
+                cost == null || cost.costByDay() == null ? null : dense(cost.costByDay(), start, days),
+                analytics.peakHours(),
+                analytics.averageDailyUsage(),
+                analytics.maxDailyUsage(),
+                recs,
+                toResponse(analytics.weekdayHourLoad()),
+                toResponse(analytics.monthHourLoad()),
+                compactCost,
+                forecast.map(f -> ForecastService.toResponse(analytics.cafeId(), f)).orElse(null)
         );
     }
+
+    private static double[] dense(Map<LocalDate, Double> byDay, LocalDate start, int days) {
+        double[] values = new double[days];
+        byDay.forEach((day, v) -> {
+            long i = ChronoUnit.DAYS.between(start, day);
+            if (i >= 0 && i < days) values[(int) i] = v;
+        });
+        return values;
+    }
 }
@@ -0,0 +1,85 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursors: the sort key of the last row on a page, base64url-encoded so clients
+ * treat it as a token rather than building their own. Each cursor names its listing (and café),
+ * so a cursor from one listing is rejected by another.
+ */
+final class PageCursor {
+
+    private static final String CAFES = "c1";
+    private static final String READINGS = "r1";
+
+    private PageCursor() {
+    }
+
+    static String cafes(long lastId) {
+        return encode(CAFES + "|" + lastId);
+    }
+
+    /**
+     * Id of the last café on the previous page, or 0 for the first page.
+     */
+    static long decodeCafes(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0L;
+        String[] parts = decode(cursor, 2);
+        if (!CAFES.equals(parts[0])) throw invalid();
+        return parseLong(parts[1]);
+    }
+
+    static String readings(long cafeId, LocalDateTime lastTimestamp, long lastId) {
+        return encode(READINGS + "|" + cafeId + "|" + lastTimestamp + "|" + lastId);
+    }
+
+    /**
+     * Position after which the next readings page starts, or null for the first page.
+     */
+    static ReadingPosition decodeReadings(String cursor, long cafeId) {
+        if (cursor == null || cursor.isBlank()) return null;
+        String[] parts = decode(cursor, 4);
+        if (!READINGS.equals(parts[0]) || parseLong(parts[1]) != cafeId) throw invalid();
+        try {
+            return new ReadingPosition(LocalDateTime.parse(parts[2]), parseLong(parts[3]));
+        } catch (DateTimeParseException e) {
+            throw invalid();
+        }
+    }
+
+    record ReadingPosition(LocalDateTime timestamp, long id) {
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor, int fields) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        String[] parts = raw.split("\\|", -1);
+        if (parts.length != fields) throw invalid();
+        return parts;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static BadRequestException invalid() {
+        return new BadRequestException("Invalid cursor");
+    }
+}
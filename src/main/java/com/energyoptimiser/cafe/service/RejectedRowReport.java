@@ -0,0 +1,81 @@
+package com.energyoptimiser.cafe.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rows a lenient upload skipped. Keeps details for the first {@code maxRows} rejections
+ * and only counts the rest, so a huge bad file cannot exhaust memory.
+ */
+public class RejectedRowReport {
+
+    private final String uploadId;
+    private final String fileName;
+    private final int maxRows;
+    private final List<RejectedRow> rows = new ArrayList<>();
+    private int rejected;
+
+    public RejectedRowReport(String uploadId, String fileName, int maxRows) {
+        this.uploadId = uploadId;
+        this.fileName = fileName;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * A report as saved by {@link RejectedRowStore}: its retained rows and the total count.
+     */
+    static RejectedRowReport restore(String uploadId, String fileName, List<RejectedRow> rows, int rejectedCount) {
+        RejectedRowReport report = new RejectedRowReport(uploadId, fileName, rows.size());
+        report.rows.addAll(rows);
+        report.rejected = rejectedCount;
+        return report;
+    }
+
+    public void reject(int line, String reason, String raw) {
+        rejected++;
+        if (rows.size() < maxRows) {
+            rows.add(new RejectedRow(line, reason, raw));
+        }
+    }
+
+    public String uploadId() {
+        return uploadId;
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    public int rejectedCount() {
+        return rejected;
+    }
+
+    public List<RejectedRow> rows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Render as CSV with columns line,reason,row. Rows beyond the retained limit are
+     * summarised in a trailing line.
+     */
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder("line,reason,row\n");
+        for (RejectedRow r : rows) {
+            sb.append(r.line()).append(',').append(escape(r.reason())).append(',').append(escape(r.raw())).append('\n');
+        }
+        if (rejected > rows.size()) {
+            sb.append(",").append(escape((rejected - rows.size()) + " more rejected rows not listed")).append(",\n");
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public record RejectedRow(int line, String reason, String raw) {
+    }
+}
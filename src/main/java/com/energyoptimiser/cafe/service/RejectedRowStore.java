@@ -0,0 +1,65 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.IngestionProperties;
+import com.energyoptimiser.cafe.exception.UploadReportNotFoundException;
+import com.energyoptimiser.cafe.model.RejectedUpload;
+import com.energyoptimiser.cafe.repository.RejectedUploadRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the most recent rejected-row reports in the database so clients can download them
+ * after a lenient upload, whichever instance serves the download. Oldest reports are
+ * evicted first.
+ */
+@Component
+public class RejectedRowStore {
+
+    private final RejectedUploadRepository rejectedUploadRepository;
+    private final IngestionProperties properties;
+
+    public RejectedRowStore(RejectedUploadRepository rejectedUploadRepository, IngestionProperties properties) {
+        this.rejectedUploadRepository = rejectedUploadRepository;
+        this.properties = properties;
+    }
+
+    @Transactional
+    public void save(RejectedRowReport report) {
+        List<RejectedUpload.Row> rows = new ArrayList<>(report.rows().size());
+        for (RejectedRowReport.RejectedRow row : report.rows()) {
+            rows.add(new RejectedUpload.Row(row.line(), row.reason(), row.raw()));
+        }
+        rejectedUploadRepository.save(RejectedUpload.builder()
+                .uploadId(report.uploadId())
+                .fileName(report.fileName())
+                .rejectedCount(report.rejectedCount())
+                .createdAt(Instant.now())
+                .rows(rows)
+                .build());
+        int capacity = Math.max(1, properties.getRetainedReports());
+        List<String> evicted = rejectedUploadRepository.findUploadIdsNewestFirst(PageRequest.of(1, capacity));
+        if (!evicted.isEmpty()) {
+            rejectedUploadRepository.deleteAllById(evicted);
+        }
+    }
+
+    /**
+     * Read-write, so the lookup goes to the primary: a replica may not have the report yet
+     * when the client asks for it right after the upload.
+     */
+    @Transactional
+    public RejectedRowReport get(String uploadId) {
+        RejectedUpload upload = rejectedUploadRepository.findById(uploadId)
+                .orElseThrow(() -> new UploadReportNotFoundException(uploadId));
+        List<RejectedRowReport.RejectedRow> rows = new ArrayList<>(upload.getRows().size());
+        for (RejectedUpload.Row row : upload.getRows()) {
+            rows.add(new RejectedRowReport.RejectedRow(row.getLine(), row.getReason(), row.getRaw()));
+        }
+        return RejectedRowReport.restore(upload.getUploadId(), upload.getFileName(), rows, upload.getRejectedCount());
+    }
+}
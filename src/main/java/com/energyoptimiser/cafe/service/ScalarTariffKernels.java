@@ -0,0 +1,32 @@
+package com.energyoptimiser.cafe.service;
+
+/**
+ * Plain-loop {@link TariffKernels}; the JIT still auto-vectorizes most of these.
+ */
+final class ScalarTariffKernels implements TariffKernels {
+
+    @Override
+    public double dot(double[] a, int ao, double[] b, int bo, int len) {
+        double sum = 0.0;
+        for (int i = 0; i < len; i++) {
+            sum += a[ao + i] * b[bo + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void multiplyAdd(double[] acc, double[] a, int ao, double[] b, int bo, int len) {
+        for (int i = 0; i < len; i++) {
+            acc[i] += a[ao + i] * b[bo + i];
+        }
+    }
+
+    @Override
+    public double max(double[] a, int ao, int len) {
+        double max = 0.0;
+        for (int i = 0; i < len; i++) {
+            if (i == 0 || a[ao + i] > max) max = a[ao + i];
+        }
+        return max;
+    }
+}
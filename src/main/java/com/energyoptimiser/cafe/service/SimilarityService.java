@@ -0,0 +1,95 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.dto.SimilarCafeResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import com.energyoptimiser.cafe.exception.ServiceNotReadyException;
+import com.energyoptimiser.cafe.model.CafeProfile;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Answers "which cafés behave like this one?" from the {@link LoadProfileIndex}.
+ */
+@Service
+public class SimilarityService {
+
+    private static final int MAX_K = 100;
+    private static final long WARM_UP_RETRY_SECONDS = 5;
+
+    private final LoadProfileIndex loadProfileIndex;
+    private final LoadProfileIndexLoader loadProfileIndexLoader;
+    private final DataVersionService dataVersionService;
+    private final CafeProfileRepository cafeProfileRepository;
+
+    public SimilarityService(LoadProfileIndex loadProfileIndex,
+                             LoadProfileIndexLoader loadProfileIndexLoader,
+                             DataVersionService dataVersionService,
+                             CafeProfileRepository cafeProfileRepository) {
+        this.loadProfileIndex = loadProfileIndex;
+        this.loadProfileIndexLoader = loadProfileIndexLoader;
+        this.dataVersionService = dataVersionService;
+        this.cafeProfileRepository = cafeProfileRepository;
+    }
+
+    /**
+     * Nearest {@code k} cafés by normalized load profile, among all cafés with readings.
+     * Answers 503 until {@link LoadProfileIndexLoader} has filled the index after startup,
+     * since a partial index would silently rank against a subset of cafés.
+     * <p>
+     * The queried café is reloaded first when its indexed profile is older than its data
+     * version (e.g. readings uploaded through another instance); the other cafés catch up
+     * through {@link LoadProfileIndexLoader#refresh()}.
+     */
+    public List<SimilarCafeResponse> findSimilar(Long cafeId, int k, String metric, String profile) {
+        if (k < 1 || k > MAX_K) {
+            throw new BadRequestException("k must be between 1 and " + MAX_K);
+        }
+        LoadProfileIndex.Metric m = parse(LoadProfileIndex.Metric.class, metric, "metric");
+        LoadProfileIndex.Profile p = parse(LoadProfileIndex.Profile.class, profile, "profile");
+
+        if (!loadProfileIndexLoader.isReady()) {
+            loadProfileIndexLoader.warmUp();
+            throw new ServiceNotReadyException("similarity index", WARM_UP_RETRY_SECONDS);
+        }
+        long version = dataVersionService.current(cafeId).version();
+        if (loadProfileIndex.version(cafeId) < version) {
+            // no readings at all means no neighbours yet
+            if (!loadProfileIndexLoader.load(cafeId)) {
+                return List.of();
+            }
+        }
+        loadProfileIndexLoader.refresh();
+
+        LoadProfileIndex.Neighbours neighbours = loadProfileIndex.nearest(cafeId, k, m, p);
+        List<Long> ids = new ArrayList<>(neighbours.cafeIds().length);
+        for (long id : neighbours.cafeIds()) {
+            ids.add(id);
+        }
+        Map<Long, CafeProfile> cafes = cafeProfileRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(CafeProfile::getId, Function.identity()));
+
+        List<SimilarCafeResponse> result = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            CafeProfile cafe = cafes.get(ids.get(i));
+            if (cafe == null) continue;
+            result.add(new SimilarCafeResponse(cafe.getId(), cafe.getName(), cafe.getLocation(),
+                    neighbours.distances()[i]));
+        }
+        return result;
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, String name) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown " + name + ": " + value);
+        }
+    }
+}
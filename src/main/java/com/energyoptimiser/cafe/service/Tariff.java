@@ -0,0 +1,16 @@
+package com.energyoptimiser.cafe.service;
+
+/**
+ * Compiled tariff: one price per kWh for each hour of the week (Monday 00:00 first,
+ * {@code rates[dow * 24 + hour]}) plus a demand charge per kW of monthly peak.
+ */
+public record Tariff(String name, double[] rates, double demandCharge) {
+
+    public static final int WEEK_HOURS = 7 * 24;
+
+    public Tariff {
+        if (rates.length != WEEK_HOURS) {
+            throw new IllegalArgumentException("Tariff " + name + " needs " + WEEK_HOURS + " hourly rates");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.energyoptimiser.cafe.service;
+
+/**
+ * Primitive-array kernels behind tariff cost calculations.
+ * <p>
+ * {@link #best()} picks the JDK Vector API implementation when it was compiled in
+ * ({@code -Pvector}) and the {@code jdk.incubator.vector} module is present (run with
+ * {@code --add-modules jdk.incubator.vector}), and falls back to plain loops otherwise.
+ */
+interface TariffKernels {
+
+    /**
+     * Sum of {@code a[ao + i] * b[bo + i]} for {@code i < len}.
+     */
+    double dot(double[] a, int ao, double[] b, int bo, int len);
+
+    /**
+     * {@code acc[i] += a[ao + i] * b[bo + i]} for {@code i < len}.
+     */
+    void multiplyAdd(double[] acc, double[] a, int ao, double[] b, int bo, int len);
+
+    /**
+     * Largest of {@code a[ao .. ao + len)}, or 0 when {@code len == 0}.
+     */
+    double max(double[] a, int ao, int len);
+
+    static TariffKernels best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // loaded reflectively so this class still links when the module is absent
+                return (TariffKernels) Class.forName("com.energyoptimiser.cafe.service.VectorTariffKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // fall through to the scalar kernels
+            }
+        }
+        return new ScalarTariffKernels();
+    }
+}
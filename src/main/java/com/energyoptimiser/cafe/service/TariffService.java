@@ -0,0 +1,208 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.TariffProperties;
+import com.energyoptimiser.cafe.dto.CostSummaryResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Prices a café's usage under time-of-use and demand-charge tariffs.
+ * <p>
+ * All maths runs over the dense hourly series and the 7×24 weekday cube from
+ * {@link AnalyticsService}, so a tariff comparison is a few 168-element dot products
+ * per tariff regardless of how many readings the café has.
+ */
+@Service
+public class TariffService {
+
+    private static final int HOURS = 24;
+
+    private final TariffProperties properties;
+    private final Map<String, Tariff> tariffs = new LinkedHashMap<>();
+    private final TariffKernels kernels = TariffKernels.best();
+
+    public TariffService(TariffProperties properties) {
+        this.properties = properties;
+        properties.getDefinitions().forEach((name, def) -> tariffs.put(name, compile(name, def)));
+    }
+
+    /**
+     * Tariff assigned to the café, falling back to the configured default.
+     */
+    public Optional<Tariff> tariffFor(Long cafeId) {
+        String name = properties.getCafeAssignments().getOrDefault(cafeId, properties.getDefaultTariff());
+        return name == null ? Optional.empty() : Optional.ofNullable(tariffs.get(name));
+    }
+
+    /**
+     * Full cost breakdown (including cost per day) of the café's usage under its own tariff,
+     * or {@code null} when no tariff applies.
+     */
+    public CostSummaryResponse costForCafe(AnalyticsService.AnalyticsData analytics) {
+        if (analytics.weekdayHourLoad() == null || analytics.hourlySeries() == null) return null;
+        return tariffFor(analytics.cafeId())
+                .map(t -> summarize(analytics, t, monthlyPeakSum(analytics.hourlySeries()), true))
+                .orElse(null);
+    }
+
+    /**
+     * Cost of the café's usage under each named tariff (all configured tariffs when empty).
+     */
+    public List<CostSummaryResponse> compareTariffs(AnalyticsService.AnalyticsData analytics, List<String> names) {
+        Collection<Tariff> selected;
+        if (names == null || names.isEmpty()) {
+            selected = tariffs.values();
+        } else {
+            selected = new ArrayList<>();
+            for (String name : names) {
+                Tariff t = tariffs.get(name);
+                if (t == null) throw new BadRequestException("Unknown tariff: " + name);
+                selected.add(t);
+            }
+        }
+        if (analytics.weekdayHourLoad() == null || analytics.hourlySeries() == null) return List.of();
+
+        // tariff-independent part of the demand charge, computed once for the whole sweep
+        double peakSum = monthlyPeakSum(analytics.hourlySeries());
+        List<CostSummaryResponse> result = new ArrayList<>(selected.size());
+        for (Tariff t : selected) {
+            result.add(summarize(analytics, t, peakSum, false));
+        }
+        return result;
+    }
+
+    private CostSummaryResponse summarize(AnalyticsService.AnalyticsData analytics, Tariff tariff,
+                                          double monthlyPeakSum, boolean withDays) {
+        double[] rates = tariff.rates();
+        double[] weekHour = weekHourTotals(analytics.weekdayHourLoad());
+
+        double energyCost = kernels.dot(weekHour, 0, rates, 0, Tariff.WEEK_HOURS);
+        double[] costByHour = new double[HOURS];
+        for (int dow = 0; dow < 7; dow++) {
+            kernels.multiplyAdd(costByHour, weekHour, dow * HOURS, rates, dow * HOURS, HOURS);
+        }
+        double demandCharges = monthlyPeakSum * tariff.demandCharge();
+        double savings = shiftSavings(weekHour, rates, analytics.peakHours());
+
+        Map<LocalDate, Double> costByDay = null;
+        if (withDays) {
+            AnalyticsService.HourlySeries series = analytics.hourlySeries();
+            double[] kwh = series.kwh();
+            costByDay = new TreeMap<>();
+            for (Map.Entry<LocalDate, double[]> older : series.older().entrySet()) {
+                int olderDow = older.getKey().getDayOfWeek().getValue() - 1;
+                costByDay.put(older.getKey(), kernels.dot(older.getValue(), 0, rates, olderDow * HOURS, HOURS));
+            }
+            int dow = series.firstDay().getDayOfWeek().getValue() - 1;
+            for (int d = 0; d < series.days(); d++, dow = (dow + 1) % 7) {
+                LocalDate day = series.firstDay().plusDays(d);
+                if (!analytics.dailyUsage().containsKey(day)) continue;
+                costByDay.put(day, kernels.dot(kwh, d * HOURS, rates, dow * HOURS, HOURS));
+            }
+        }
+
+        return new CostSummaryResponse(tariff.name(), properties.getCurrency(), energyCost, demandCharges,
+                energyCost + demandCharges, costByHour, costByDay, savings);
+    }
+
+    /**
+     * Savings from moving the shiftable share of peak-hour load to the cheapest
+     * non-peak hour of the same weekday.
+     */
+    private double shiftSavings(double[] weekHour, double[] rates, List<Integer> peakHours) {
+        if (peakHours == null || peakHours.isEmpty()) return 0.0;
+        boolean[] peak = new boolean[HOURS];
+        for (int h : peakHours) peak[h] = true;
+
+        double savings = 0.0;
+        for (int dow = 0; dow < 7; dow++) {
+            int base = dow * HOURS;
+            double cheapest = Double.MAX_VALUE;
+            for (int h = 0; h < HOURS; h++) {
+                if (!peak[h] && rates[base + h] < cheapest) cheapest = rates[base + h];
+            }
+            if (cheapest == Double.MAX_VALUE) continue; // every hour is a peak hour
+            for (int h = 0; h < HOURS; h++) {
+                double diff = rates[base + h] - cheapest;
+                if (peak[h] && diff > 0) savings += weekHour[base + h] * diff;
+            }
+        }
+        return savings * properties.getShiftableFraction();
+    }
+
+    /**
+     * Sum over calendar months of the highest hourly kWh (≈ average kW in that hour), over the
+     * full history like the energy cost: the dense series plus any older days.
+     */
+    private double monthlyPeakSum(AnalyticsService.HourlySeries series) {
+        double total = 0.0;
+        double monthPeak = 0.0;
+        int month = -1;
+        for (Map.Entry<LocalDate, double[]> older : series.older().entrySet()) {
+            int m = monthIndex(older.getKey());
+            if (m != month) {
+                total += monthPeak;
+                monthPeak = 0.0;
+                month = m;
+            }
+            monthPeak = Math.max(monthPeak, kernels.max(older.getValue(), 0, HOURS));
+        }
+        double[] kwh = series.kwh();
+        LocalDate day = series.firstDay();
+        for (int d = 0; d < series.days(); d++, day = day.plusDays(1)) {
+            int m = monthIndex(day);
+            if (m != month) {
+                total += monthPeak;
+                monthPeak = 0.0;
+                month = m;
+            }
+            monthPeak = Math.max(monthPeak, kernels.max(kwh, d * HOURS, HOURS));
+        }
+        return total + monthPeak;
+    }
+
+    private static int monthIndex(LocalDate day) {
+        return day.getYear() * 12 + day.getMonthValue() - 1;
+    }
+
+    private static double[] weekHourTotals(LoadCube cube) {
+        double[] totals = new double[Tariff.WEEK_HOURS];
+        for (int dow = 0; dow < 7; dow++) {
+            for (int h = 0; h < HOURS; h++) {
+                totals[dow * HOURS + h] = cube.sum(dow, h);
+            }
+        }
+        return totals;
+    }
+
+    private static Tariff compile(String name, TariffProperties.Definition def) {
+        double[] rates = new double[Tariff.WEEK_HOURS];
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<Double> dayRates = def.getDayRates().get(day);
+            if (dayRates == null && day.getValue() >= 6 && !def.getWeekendRates().isEmpty()) {
+                dayRates = def.getWeekendRates();
+            }
+            if (dayRates == null) {
+                dayRates = def.getRates();
+            }
+            if (dayRates.size() != HOURS) {
+                throw new IllegalStateException("Tariff '" + name + "' must define " + HOURS
+                        + " hourly rates for " + day + ", found " + dayRates.size());
+            }
+            for (int h = 0; h < HOURS; h++) {
+                rates[(day.getValue() - 1) * HOURS + h] = dayRates.get(h);
+            }
+        }
+        return new Tariff(name, rates, def.getDemandCharge());
+    }
+}
@@ -0,0 +1,64 @@
+package com.energyoptimiser.cafe.service;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link TariffKernels} on the JDK Vector API. Only instantiated through
+ * {@link TariffKernels#best()} when {@code jdk.incubator.vector} is available.
+ */
+final class VectorTariffKernels implements TariffKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public double dot(double[] a, int ao, double[] b, int bo, int len) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(len);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, ao + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + i);
+            acc = va.fma(vb, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            sum += a[ao + i] * b[bo + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void multiplyAdd(double[] acc, double[] a, int ao, double[] b, int bo, int len) {
+        int i = 0;
+        int bound = SPECIES.loopBound(len);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, ao + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + i);
+            va.fma(vb, DoubleVector.fromArray(SPECIES, acc, i)).intoArray(acc, i);
+        }
+        for (; i < len; i++) {
+            acc[i] += a[ao + i] * b[bo + i];
+        }
+    }
+
+    @Override
+    public double max(double[] a, int ao, int len) {
+        if (len == 0) return 0.0;
+        int i = 0;
+        int bound = SPECIES.loopBound(len);
+        double max = a[ao];
+        if (bound > 0) {
+            DoubleVector acc = DoubleVector.fromArray(SPECIES, a, ao);
+            for (i = SPECIES.length(); i < bound; i += SPECIES.length()) {
+                acc = acc.max(DoubleVector.fromArray(SPECIES, a, ao + i));
+            }
+            max = acc.reduceLanes(VectorOperators.MAX);
+        }
+        for (; i < len; i++) {
+            if (a[ao + i] > max) max = a[ao + i];
+        }
+        return max;
+    }
+}
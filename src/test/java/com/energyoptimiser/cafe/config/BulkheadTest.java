@@ -0,0 +1,147 @@
+package com.energyoptimiser.cafe.config;
+
+import com.energyoptimiser.cafe.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkheadTest {
+
+    @Test
+    void rejectsImmediately_whenQueueIsFull() {
+        Bulkhead bulkhead = new Bulkhead("test", new BulkheadProperties.Limit(1, 0, Duration.ofSeconds(5)));
+        long slot = bulkhead.acquire();
+
+        long start = System.nanoTime();
+        ServiceOverloadedException ex = assertThrows(ServiceOverloadedException.class, bulkhead::acquire);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(ex.getRetryAfterSeconds()).isGreaterThanOrEqualTo(1);
+        assertThat(bulkhead.rejected()).isEqualTo(1);
+        bulkhead.release(slot);
+        assertThat(bulkhead.active()).isZero();
+    }
+
+    @Test
+    void rejectsAfterMaxQueueWait() {
+        Bulkhead bulkhead = new Bulkhead("test", new BulkheadProperties.Limit(1, 10, Duration.ofMillis(50)));
+        long slot = bulkhead.acquire();
+
+        assertThrows(ServiceOverloadedException.class, bulkhead::acquire);
+
+        assertThat(bulkhead.queued()).isZero();
+        bulkhead.release(slot);
+    }
+
+    @Test
+    void shedsUpFront_whenPredictedWaitExceedsLimit() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", new BulkheadProperties.Limit(1, 10, Duration.ofMillis(100)));
+        // teach the bulkhead that a request holds its slot for ~300ms
+        long warm = bulkhead.acquire();
+        Thread.sleep(300);
+        bulkhead.release(warm);
+
+        long slot = bulkhead.acquire();
+        long start = System.nanoTime();
+        assertThrows(ServiceOverloadedException.class, bulkhead::acquire);
+
+        // rejected without waiting the full 100ms queue timeout
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(100));
+        bulkhead.release(slot);
+    }
+
+    @Test
+    void queuedRequestRuns_onceSlotIsReleased() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", new BulkheadProperties.Limit(1, 10, Duration.ofSeconds(5)));
+        long slot = bulkhead.acquire();
+        CountDownLatch admitted = new CountDownLatch(1);
+
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            bulkhead.release(bulkhead.acquire());
+            admitted.countDown();
+        });
+        while (bulkhead.queued() == 0) {
+            Thread.onSpinWait();
+        }
+        bulkhead.release(slot);
+
+        assertThat(admitted.await(5, TimeUnit.SECONDS)).isTrue();
+        waiter.join();
+        assertThat(bulkhead.rejected()).isZero();
+    }
+
+    @Test
+    void releasedSlotGoesToTheQueuedRequest_notToANewArrival() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", new BulkheadProperties.Limit(1, 10, Duration.ofSeconds(5)));
+        long slot = bulkhead.acquire();
+        Queue<String> order = new ConcurrentLinkedQueue<>();
+
+        Thread waiter = Thread.ofPlatform().start(() -> {
+            long s = bulkhead.acquire();
+            order.add("queued");
+            bulkhead.release(s);
+        });
+        while (waiter.getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+        }
+        bulkhead.release(slot);
+        long s = bulkhead.acquire();
+        order.add("new arrival");
+        bulkhead.release(s);
+
+        waiter.join();
+        assertThat(order).containsExactly("queued", "new arrival");
+    }
+
+    @Test
+    void filter_releasesSlotAfterTheChain_andExposesMetrics() throws Exception {
+        Bulkhead ingestion = new Bulkhead("ingestion", new BulkheadProperties.Limit(1, 0, Duration.ofSeconds(1)));
+        Bulkhead analytics = new Bulkhead("analytics", new BulkheadProperties.Limit(2, 0, Duration.ofSeconds(1)));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        analytics.bindTo(registry);
+        BulkheadFilter filter = new BulkheadFilter(ingestion, analytics);
+        double[] activeInChain = new double[1];
+        FilterChain chain = (req, res) ->
+                activeInChain[0] = registry.get("energy.bulkhead.active").tag("bulkhead", "analytics").gauge().value();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/cafes/1/insights"), new MockHttpServletResponse(), chain);
+
+        assertThat(activeInChain[0]).isEqualTo(1.0);
+        assertThat(analytics.active()).isZero();
+        assertThat(ingestion.active()).isZero();
+        assertThat(registry.get("energy.bulkhead.admitted").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("energy.bulkhead.rejected").tag("reason", "queue_full").functionCounter().count())
+                .isZero();
+    }
+
+    @Test
+    void filter_shedsAnUploadBeforeItsBodyIsRead() throws Exception {
+        Bulkhead ingestion = new Bulkhead("ingestion", new BulkheadProperties.Limit(1, 0, Duration.ofSeconds(1)));
+        Bulkhead analytics = new Bulkhead("analytics", new BulkheadProperties.Limit(1, 0, Duration.ofSeconds(1)));
+        BulkheadFilter filter = new BulkheadFilter(ingestion, analytics);
+        long slot = ingestion.acquire();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/cafes/upload"), response, chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isNotNull();
+        assertThat(response.getContentAsString()).contains("ingestion");
+        assertThat(analytics.active()).isZero();
+        ingestion.release(slot);
+    }
+}
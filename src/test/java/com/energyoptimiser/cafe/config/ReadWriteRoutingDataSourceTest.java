@@ -0,0 +1,93 @@
+package com.energyoptimiser.cafe.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routes against two separate in-memory databases, each tagged with its own name.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = DataSourceConfig.replicaDataSource(new Binder(new MapConfigurationPropertySource(Map.of(
+                "energy.datasource.replica.url", "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+                "energy.datasource.replica.username", "sa",
+                "energy.datasource.replica.hikari.maximum-pool-size", "3"))));
+        tag(primary, "primary");
+        tag(replica, "replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+        replica.close();
+    }
+
+    private static HikariDataSource database(String name) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        ds.setUsername("sa");
+        return ds;
+    }
+
+    private static void tag(DataSource ds, String name) {
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("create table if not exists db_name (name varchar(16))");
+        jdbc.execute("delete from db_name");
+        jdbc.update("insert into db_name values (?)", name);
+    }
+
+    private static String whereAmI(DataSource routed, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(routed));
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> new JdbcTemplate(routed).queryForObject("select name from db_name", String.class));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica_othersToPrimary() {
+        DataSource routed = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+
+        assertThat(whereAmI(routed, true)).isEqualTo("replica");
+        assertThat(whereAmI(routed, false)).isEqualTo("primary");
+        // outside any transaction
+        assertThat(new JdbcTemplate(routed).queryForObject("select name from db_name", String.class))
+                .isEqualTo("primary");
+    }
+
+    @Test
+    void replicaGetsItsOwnPoolSettings() {
+        assertThat(replica.getMaximumPoolSize()).isEqualTo(3);
+        assertThat(replica.isReadOnly()).isTrue();
+        assertThat(replica.getPoolName()).isEqualTo("replica");
+    }
+
+    @Test
+    void withoutReplica_readsFallBackToPrimary() {
+        HikariDataSource none = DataSourceConfig.replicaDataSource(new Binder(new MapConfigurationPropertySource(
+                Map.of("energy.datasource.replica.url", ""))));
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, none);
+        DataSource routed = new LazyConnectionDataSourceProxy(routing);
+
+        assertThat(none).isNull();
+        assertThat(routing.hasReplica()).isFalse();
+        assertThat(whereAmI(routed, true)).isEqualTo("primary");
+    }
+}
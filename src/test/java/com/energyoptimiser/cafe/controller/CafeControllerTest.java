@@ -1,11 +1,32 @@
 package com.energyoptimiser.cafe.controller;
 
+import com.energyoptimiser.cafe.dto.AnomalyResponse;
+import com.energyoptimiser.cafe.dto.CafeDataVersion;
+import com.energyoptimiser.cafe.dto.CafeSummaryResponse;
+import com.energyoptimiser.cafe.dto.CompactInsightsResponse;
+import com.energyoptimiser.cafe.dto.CursorPageResponse;
+import com.energyoptimiser.cafe.dto.ForecastResponse;
+import com.energyoptimiser.cafe.dto.CostSummaryResponse;
 import com.energyoptimiser.cafe.dto.InsightsResponse;
+import com.energyoptimiser.cafe.dto.LoadShiftResponse;
+import com.energyoptimiser.cafe.dto.ReadingResponse;
+import com.energyoptimiser.cafe.dto.SimilarCafeResponse;
 import com.energyoptimiser.cafe.dto.UploadResponse;
+import com.energyoptimiser.cafe.exception.CafeNotFoundException;
 import com.energyoptimiser.cafe.exception.GlobalExceptionHandler;
+import com.energyoptimiser.cafe.exception.UploadReportNotFoundException;
+import com.energyoptimiser.cafe.model.AnomalyType;
 import com.energyoptimiser.cafe.service.AnalyticsService;
+import com.energyoptimiser.cafe.service.AnomalyService;
+import com.energyoptimiser.cafe.service.DataVersionService;
+import com.energyoptimiser.cafe.service.ForecastService;
 import com.energyoptimiser.cafe.service.OptimizationService;
+import com.energyoptimiser.cafe.service.RejectedRowReport;
 import com.energyoptimiser.cafe.service.IngestionService;
+import com.energyoptimiser.cafe.service.ListingService;
+import com.energyoptimiser.cafe.service.LoadShiftService;
+import com.energyoptimiser.cafe.service.SimilarityService;
+import com.energyoptimiser.cafe.service.TariffService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -18,6 +39,7 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -44,6 +66,27 @@ class CafeControllerTest {
     @Autowired
     private OptimizationService optimizationService;
 
+    @Autowired
+    private AnomalyService anomalyService;
+
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Autowired
+    private TariffService tariffService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private ListingService listingService;
+
+    @Autowired
+    private ForecastService forecastService;
+
+    @Autowired
+    private LoadShiftService loadShiftService;
+
     @TestConfiguration
     static class MockConfig {
         @Bean
@@ -60,6 +103,41 @@ class CafeControllerTest {
         OptimizationService optimizationService() {
             return Mockito.mock(OptimizationService.class);
         }
+
+        @Bean
+        AnomalyService anomalyService() {
+            return Mockito.mock(AnomalyService.class);
+        }
+
+        @Bean
+        SimilarityService similarityService() {
+            return Mockito.mock(SimilarityService.class);
+        }
+
+        @Bean
+        TariffService tariffService() {
+            return Mockito.mock(TariffService.class);
+        }
+
+        @Bean
+        DataVersionService dataVersionService() {
+            return Mockito.mock(DataVersionService.class);
+        }
+
+        @Bean
+        ListingService listingService() {
+            return Mockito.mock(ListingService.class);
+        }
+
+        @Bean
+        ForecastService forecastService() {
+            return Mockito.mock(ForecastService.class);
+        }
+
+        @Bean
+        LoadShiftService loadShiftService() {
+            return Mockito.mock(LoadShiftService.class);
+        }
     }
 
     @Test
@@ -76,7 +154,7 @@ class CafeControllerTest {
                         """).getBytes()
         );
 
-        UploadResponse response = new UploadResponse(1L, "readings.csv", 1, "OK", LocalDateTime.now());
+        UploadResponse response = new UploadResponse(1L, "readings.csv", 1, 0, "OK", null, LocalDateTime.now());
         Mockito.when(ingestionService.processCSV(Mockito.any())).thenReturn(response);
 
         // Act + Assert
@@ -98,6 +176,55 @@ class CafeControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("POST /api/cafes/upload?mode=lenient reports rejected rows")
+    void upload_lenient_returnsPartialResponse() throws Exception {
+        MockMultipartFile csv = new MockMultipartFile("file", "mixed.csv", MediaType.TEXT_PLAIN_VALUE,
+                "name,location,timestamp,kwh\n".getBytes());
+        UploadResponse response = new UploadResponse(1L, "mixed.csv", 5, 2, "PARTIAL", "abc", LocalDateTime.now());
+        Mockito.when(ingestionService.processCSVLenient(Mockito.any())).thenReturn(response);
+
+        mockMvc.perform(multipart("/api/cafes/upload").file(csv).param("mode", "lenient"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsRejected", is(2)))
+                .andExpect(jsonPath("$.status", is("PARTIAL")))
+                .andExpect(jsonPath("$.uploadId", is("abc")));
+    }
+
+    @Test
+    @DisplayName("POST /api/cafes/upload with unknown mode returns 400")
+    void upload_unknownMode_returnsBadRequest() throws Exception {
+        MockMultipartFile csv = new MockMultipartFile("file", "readings.csv", MediaType.TEXT_PLAIN_VALUE,
+                "name,location,timestamp,kwh\n".getBytes());
+
+        mockMvc.perform(multipart("/api/cafes/upload").file(csv).param("mode", "sloppy"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/uploads/{id}/rejected returns the rejected rows as CSV")
+    void rejectedRows_returnsCsv() throws Exception {
+        RejectedRowReport report = new RejectedRowReport("abc", "mixed.csv", 10);
+        report.reject(3, "Invalid timestamp: yesterday", "Cafe A,Loc,yesterday,1.0");
+        Mockito.when(ingestionService.getRejectedRows("abc")).thenReturn(report);
+
+        mockMvc.perform(get("/api/cafes/uploads/{uploadId}/rejected", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", containsString("rejected-abc.csv")))
+                .andExpect(content().string(
+                        "line,reason,row\n3,Invalid timestamp: yesterday,\"Cafe A,Loc,yesterday,1.0\"\n"));
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/uploads/{id}/rejected for unknown upload returns 404")
+    void rejectedRows_unknownUpload_returnsNotFound() throws Exception {
+        Mockito.when(ingestionService.getRejectedRows("gone")).thenThrow(new UploadReportNotFoundException("gone"));
+
+        mockMvc.perform(get("/api/cafes/uploads/{uploadId}/rejected", "gone"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @DisplayName("GET /api/cafes/{id}/insights returns 200 and InsightsResponse JSON")
     void insights_returnsInsightsResponse() throws Exception {
@@ -115,12 +242,14 @@ class CafeControllerTest {
         List<Integer> peaks = List.of(10);
 
         var analytics = new com.energyoptimiser.cafe.service.AnalyticsService.AnalyticsData(
-                cafeId, hourly, daily, peaks, 7.5, 7.5
+                cafeId, hourly, daily, peaks, 7.5, 7.5, null, null, null
         );
 
         InsightsResponse insights = new InsightsResponse(hourly, daily, peaks, 7.5, 7.5,
-                List.of("Consider shifting non-essential loads away from peak hour(s): [10]"));
+                List.of("Consider shifting non-essential loads away from peak hour(s): [10]"), null, null, null, null);
 
+        Mockito.when(dataVersionService.current(cafeId))
+                .thenReturn(new CafeDataVersion(cafeId, 3, Instant.parse("2025-01-31T12:00:00Z")));
         Mockito.when(analyticsService.computeAnalytics(cafeId)).thenReturn(analytics);
         Mockito.when(optimizationService.generateInsights(analytics)).thenReturn(insights);
 
@@ -128,6 +257,8 @@ class CafeControllerTest {
         mockMvc.perform(get("/api/cafes/{cafeId}/insights", cafeId))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("ETag", "W/\"42-3\""))
+                .andExpect(header().string("Last-Modified", "Fri, 31 Jan 2025 12:00:00 GMT"))
                 // top-level fields present
                 .andExpect(jsonPath("$.hourlyUsage", aMapWithSize(2)))
                 .andExpect(jsonPath("$.hourlyUsage['9']", is(closeTo(3.5, 0.0001))))
@@ -140,4 +271,203 @@ class CafeControllerTest {
                 .andExpect(jsonPath("$.maxDailyUsage", is(closeTo(7.5, 0.0001))))
                 .andExpect(jsonPath("$.recommendations", hasSize(1)));
     }
+
+    @Test
+    @DisplayName("GET /api/cafes/{id}/anomalies returns flagged readings")
+    void anomalies_returnsList() throws Exception {
+        var anomaly = new AnomalyResponse(5L, LocalDateTime.of(2025, 1, 31, 2, 0), 9.0, 1.0, 6.2,
+                AnomalyType.SPIKE, LocalDateTime.of(2025, 1, 31, 2, 1));
+        Mockito.when(dataVersionService.current(42L)).thenReturn(new CafeDataVersion(42L, 3, null));
+        Mockito.when(anomalyService.getRecentAnomalies(42L, 10)).thenReturn(List.of(anomaly));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/anomalies", 42L).param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].type", is("SPIKE")))
+                .andExpect(jsonPath("$[0].expectedKwh", is(closeTo(1.0, 0.0001))));
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/{id}/anomalies for unknown café returns 404")
+    void anomalies_unknownCafe_returnsNotFound() throws Exception {
+        Mockito.when(dataVersionService.current(99L)).thenThrow(new CafeNotFoundException(99L));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/anomalies", 99L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/{id}/similar returns nearest cafés")
+    void similar_returnsNeighbours() throws Exception {
+        Mockito.when(similarityService.findSimilar(42L, 2, "euclidean", "weekly")).thenReturn(List.of(
+                new SimilarCafeResponse(7L, "Cafe B", "Leeds", 0.01),
+                new SimilarCafeResponse(9L, "Cafe C", "York", 0.2)));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/similar", 42L)
+                        .param("k", "2").param("metric", "euclidean").param("profile", "weekly"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].cafeId", is(7)))
+                .andExpect(jsonPath("$[1].name", is("Cafe C")));
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/{id}/costs compares the requested tariffs")
+    void costs_comparesTariffs() throws Exception {
+        var analytics = new AnalyticsService.AnalyticsData(42L, Map.of(), Map.of(), List.of(), 0, 0, null, null, null);
+        Mockito.when(dataVersionService.current(42L)).thenReturn(new CafeDataVersion(42L, 3, null));
+        Mockito.when(analyticsService.computeAnalytics(42L)).thenReturn(analytics);
+        Mockito.when(tariffService.compareTariffs(analytics, List.of("flat", "tou"))).thenReturn(List.of(
+                new CostSummaryResponse("flat", "GBP", 10.0, 2.0, 12.0, new double[24], null, 0.0),
+                new CostSummaryResponse("tou", "GBP", 8.0, 2.0, 10.0, new double[24], null, 1.5)));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/costs", 42L).param("tariff", "flat", "tou"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].tariff", is("tou")))
+                .andExpect(jsonPath("$[1].totalCost", is(closeTo(10.0, 0.0001))))
+                .andExpect(jsonPath("$[0].costByHour", hasSize(24)));
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes returns a page of cafés with a next cursor")
+    void listCafes_returnsPage() throws Exception {
+        Mockito.when(listingService.listCafes("abc", 2)).thenReturn(new CursorPageResponse<>(
+                List.of(new CafeSummaryResponse(3L, "Cafe C", "Leeds"), new CafeSummaryResponse(4L, "Cafe D", "York")),
+                "next"));
+
+        mockMvc.perform(get("/api/cafes").param("cursor", "abc").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id", is(3)))
+                .andExpect(jsonPath("$.items[1].location", is("York")))
+                .andExpect(jsonPath("$.nextCursor", is("next")));
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/{id}/readings returns a page of readings with an ETag")
+    void listReadings_returnsPage() throws Exception {
+        Mockito.when(dataVersionService.current(46L)).thenReturn(new CafeDataVersion(46L, 1, null));
+        Mockito.when(listingService.listReadings(46L, null, 100)).thenReturn(new CursorPageResponse<>(
+                List.of(new ReadingResponse(1L, LocalDateTime.parse("2025-01-01T08:00:00"), 1.5)), null));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/readings", 46L))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"46-1\""))
+                .andExpect(jsonPath("$.items[0].kwh", is(1.5)))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
+    @Test
+    @DisplayName("POST /api/cafes/{id}/load-shift returns the best schedules")
+    void loadShift_returnsSchedules() throws Exception {
+        LoadShiftResponse response = new LoadShiftResponse(48L, "peak", null, null, 9.0, null, List.of(
+                new LoadShiftResponse.Schedule(List.of(new LoadShiftResponse.Placement("dishwasher", 12, 15, 17)),
+                        7.0, 2.0, null, null)));
+        Mockito.when(loadShiftService.simulate(Mockito.eq(48L), Mockito.any())).thenReturn(response);
+
+        mockMvc.perform(post("/api/cafes/{cafeId}/load-shift", 48L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"objective":"peak","appliances":[
+                                  {"name":"dishwasher","kwh":4.0,"durationHours":2,"currentStartHour":12,
+                                   "windows":[{"fromHour":14,"toHour":22}]}]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.baselinePeakKwh", is(9.0)))
+                .andExpect(jsonPath("$.schedules[0].peakReductionKwh", is(2.0)))
+                .andExpect(jsonPath("$.schedules[0].placements[0].startHour", is(15)));
+
+        Mockito.verify(loadShiftService).simulate(Mockito.eq(48L), Mockito.argThat(r ->
+                r.appliances().getFirst().windows().getFirst().toHour() == 22));
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/{id}/forecast returns the hourly forecast")
+    void forecast_returnsForecast() throws Exception {
+        Mockito.when(dataVersionService.current(47L)).thenReturn(new CafeDataVersion(47L, 2, null));
+        LocalDateTime start = LocalDateTime.parse("2025-02-01T00:00:00");
+        Mockito.when(forecastService.getForecast(47L, 3)).thenReturn(
+                new ForecastResponse(47L, start, new double[]{1.0, 4.0, 2.0}, 7.0, start.plusHours(1), 4.0));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/forecast", 47L).param("hours", "3"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"47-2\""))
+                .andExpect(jsonPath("$.kwh", hasSize(3)))
+                .andExpect(jsonPath("$.peakAt", is("2025-02-01T01:00:00")))
+                .andExpect(jsonPath("$.totalKwh", is(7.0)));
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/{id}/insights?format=compact returns array-based insights with their own ETag")
+    void insights_compact_returnsArrays() throws Exception {
+        var analytics = new com.energyoptimiser.cafe.service.AnalyticsService.AnalyticsData(
+                48L, Map.of(), Map.of(), List.of(), 0, 0, null, null, null);
+        Mockito.when(dataVersionService.current(48L)).thenReturn(new CafeDataVersion(48L, 5, null));
+        Mockito.when(analyticsService.computeAnalytics(48L)).thenReturn(analytics);
+        Mockito.when(optimizationService.generateCompactInsights(analytics)).thenReturn(new CompactInsightsResponse(
+                new double[24], LocalDate.of(2025, 1, 1), 1, new double[]{3.0, 4.0}, null, List.of(), 3.5, 4.0,
+                List.of(), null, null, null, null));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/insights", 48L).param("format", "compact"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"48-5-compact\""))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")))
+                .andExpect(jsonPath("$.hourlyUsage", hasSize(24)))
+                .andExpect(jsonPath("$.dailyStart", is("2025-01-01")))
+                .andExpect(jsonPath("$.dailyUsage[1]", is(4.0)));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/insights", 48L)
+                        .accept("application/vnd.energyoptimiser.compact+json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/vnd.energyoptimiser.compact+json"))
+                .andExpect(header().string("ETag", "W/\"48-5-compact\""));
+    }
+
+    @Test
+    @DisplayName("Accept: application/cbor returns CBOR with a distinct ETag; */* stays JSON")
+    void insights_cbor_returnsBinaryEncoding() throws Exception {
+        var analytics = new com.energyoptimiser.cafe.service.AnalyticsService.AnalyticsData(
+                49L, Map.of(), Map.of(), List.of(), 0, 0, null, null, null);
+        Mockito.when(dataVersionService.current(49L)).thenReturn(new CafeDataVersion(49L, 1, null));
+        Mockito.when(analyticsService.computeAnalytics(49L)).thenReturn(analytics);
+        Mockito.when(optimizationService.generateInsights(analytics)).thenReturn(new InsightsResponse(
+                Map.of(), Map.of(), List.of(), 0, 0, List.of("ok"), null, null, null, null));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/insights", 49L).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("ETag", "W/\"49-1-cbor\""));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/insights", 49L).accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("ETag", "W/\"49-1\""));
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/{id}/insights with matching If-None-Match returns 304 without computing")
+    void insights_matchingEtag_returnsNotModified() throws Exception {
+        Mockito.when(dataVersionService.current(43L)).thenReturn(new CafeDataVersion(43L, 7, null));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/insights", 43L).header("If-None-Match", "\"43-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"43-7\""))
+                .andExpect(content().string(""));
+
+        Mockito.verify(analyticsService, Mockito.never()).computeAnalytics(43L);
+    }
+
+    @Test
+    @DisplayName("GET /api/cafes/{id}/insights with If-Modified-Since at the last change returns 304")
+    void insights_notModifiedSince_returnsNotModified() throws Exception {
+        Mockito.when(dataVersionService.current(44L))
+                .thenReturn(new CafeDataVersion(44L, 2, Instant.parse("2025-01-31T12:00:00Z")));
+
+        mockMvc.perform(get("/api/cafes/{cafeId}/insights", 44L)
+                        .header("If-Modified-Since", "Fri, 31 Jan 2025 12:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(analyticsService, Mockito.never()).computeAnalytics(44L);
+    }
 }
@@ -0,0 +1,58 @@
+package com.energyoptimiser.cafe.harness;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal {@code --key=value} argument parsing for the harness command-line tools.
+ */
+final class HarnessArgs {
+
+    private HarnessArgs() {
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                opts.put(arg.substring(2), "true");
+            } else {
+                opts.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return opts;
+    }
+
+    static int intOpt(Map<String, String> opts, String key, int defaultValue) {
+        String v = opts.get(key);
+        return v == null ? defaultValue : Integer.parseInt(v);
+    }
+
+    static long longOpt(Map<String, String> opts, String key, long defaultValue) {
+        String v = opts.get(key);
+        return v == null ? defaultValue : Long.parseLong(v);
+    }
+
+    static double doubleOpt(Map<String, String> opts, String key, double defaultValue) {
+        String v = opts.get(key);
+        return v == null ? defaultValue : Double.parseDouble(v);
+    }
+
+    /**
+     * Durations as 500ms, 30s, 5m or ISO-8601 (PT30S).
+     */
+    static Duration durationOpt(Map<String, String> opts, String key, Duration defaultValue) {
+        String v = opts.get(key);
+        if (v == null) return defaultValue;
+        if (v.startsWith("P") || v.startsWith("p")) return Duration.parse(v);
+        if (v.endsWith("ms")) return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        if (v.endsWith("s")) return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        if (v.endsWith("m")) return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        return Duration.ofSeconds(Long.parseLong(v));
+    }
+}
@@ -0,0 +1,80 @@
+package com.energyoptimiser.cafe.harness;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects per-request latencies and outcomes for one endpoint. Latency is measured from when
+ * the request was scheduled to start, not when it was actually sent, so a stalled server
+ * cannot hide its queueing delay from the numbers (coordinated omission).
+ */
+final class LatencyRecorder {
+
+    private final String name;
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private long[] latencies = new long[1024];
+    private int count;
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param status HTTP status, or -1 when the request failed without a response
+     */
+    void record(long latencyNanos, int status) {
+        if (status >= 200 && status < 400) {
+            ok.increment();
+        } else if (status == 503) {
+            rejected.increment();
+        } else {
+            errors.increment();
+        }
+        synchronized (this) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+    }
+
+    Summary summarize(double seconds) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(latencies, count);
+        }
+        Arrays.sort(sorted);
+        return new Summary(name, sorted.length, ok.sum(), rejected.sum(), errors.sum(),
+                sorted.length / seconds,
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * Outcome counts, completed requests per second, and latency percentiles in milliseconds.
+     */
+    record Summary(String name, long count, long ok, long rejected, long errors, double throughput,
+                   double p50, double p90, double p99, double p999, double max) {
+
+        static final String CSV_HEADER = "label,endpoint,count,ok,rejected,errors,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+        String toCsv(String label) {
+            return String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f",
+                    label, name, count, ok, rejected, errors, throughput, p50, p90, p99, p999, max);
+        }
+
+        String toRow() {
+            return String.format(Locale.ROOT, "%-9s %8d %8d %8d %6d %10.1f %9.1f %9.1f %9.1f %9.1f %9.1f",
+                    name, count, ok, rejected, errors, throughput, p50, p90, p99, p999, max);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.energyoptimiser.cafe.harness;
+
+import com.energyoptimiser.cafe.EnergyOptimiserApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-loop load driver for the upload and insights endpoints.
+ * <p>
+ * Seeds {@code --cafes} cafés with {@code --seed-days} of synthetic history, then for
+ * {@code --duration} fires uploads (each adding {@code --upload-days} more days for one café) and
+ * insights requests (for a random café) at fixed rates, independently of how fast the server
+ * answers. Results from the first {@code --warmup} are discarded. Prints throughput and latency
+ * percentiles per endpoint and, with {@code --report=file}, appends them as CSV rows tagged with
+ * {@code --label} so runs before and after a change can be compared.
+ * <p>
+ * Without {@code --base-url} the application is started in-process with the {@code embedded}
+ * profile on a random port; extra {@code --spring.*} / {@code --energy.*} arguments are passed to it.
+ * <pre>
+ * MAVEN_OPTS="--add-modules jdk.incubator.vector" mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.energyoptimiser.cafe.harness.LoadDriver \
+ *     -Dexec.args="--duration=60s --upload-rate=2 --insights-rate=50 --label=baseline --report=target/load.csv"
+ * </pre>
+ */
+public final class LoadDriver {
+
+    private static final Pattern CAFE_ID = Pattern.compile("\"cafeId\"\\s*:\\s*(\\d+)");
+    private static final String BOUNDARY = "----energy-harness-boundary";
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final SyntheticDataGenerator generator;
+    private final String uploadMode;
+
+    private LoadDriver(String baseUrl, SyntheticDataGenerator generator, String uploadMode) {
+        this.baseUrl = baseUrl;
+        this.generator = generator;
+        this.uploadMode = uploadMode;
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = HarnessArgs.parse(args);
+        int cafes = HarnessArgs.intOpt(opts, "cafes", 10);
+        int seedDays = HarnessArgs.intOpt(opts, "seed-days", 30);
+        int uploadDays = HarnessArgs.intOpt(opts, "upload-days", 1);
+        int step = HarnessArgs.intOpt(opts, "step-minutes", 60);
+        double uploadRate = HarnessArgs.doubleOpt(opts, "upload-rate", 1.0);
+        double insightsRate = HarnessArgs.doubleOpt(opts, "insights-rate", 20.0);
+        Duration duration = HarnessArgs.durationOpt(opts, "duration", Duration.ofSeconds(30));
+        Duration warmup = HarnessArgs.durationOpt(opts, "warmup", Duration.ofSeconds(5));
+        LocalDate start = LocalDate.parse(opts.getOrDefault("start", "2025-01-01"));
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(HarnessArgs.longOpt(opts, "seed", 42L));
+
+        ConfigurableApplicationContext app = null;
+        String baseUrl = opts.get("base-url");
+        if (baseUrl == null) {
+            app = startEmbedded(args);
+            baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            LoadDriver driver = new LoadDriver(baseUrl, generator, opts.getOrDefault("mode", "strict"));
+            long[] cafeIds = driver.seed(cafes, start, seedDays, step);
+            List<LatencyRecorder.Summary> results = driver.run(cafeIds, start.plusDays(seedDays), uploadDays, step,
+                    uploadRate, insightsRate, duration, warmup);
+            report(opts, results);
+        } finally {
+            if (app != null) app.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startEmbedded(String[] args) {
+        List<String> appArgs = new ArrayList<>(List.of("--server.port=0", "--logging.level.root=WARN"));
+        for (String arg : args) {
+            if (arg.startsWith("--spring.") || arg.startsWith("--energy.") || arg.startsWith("--logging.")) {
+                appArgs.add(arg);
+            }
+        }
+        SpringApplication application = new SpringApplication(EnergyOptimiserApplication.class);
+        application.setAdditionalProfiles("embedded");
+        return application.run(appArgs.toArray(String[]::new));
+    }
+
+    /**
+     * Upload the initial history, one café per request, and return the ids the server assigned.
+     */
+    private long[] seed(int cafes, LocalDate start, int days, int step) throws IOException, InterruptedException {
+        long[] ids = new long[cafes];
+        long rows = 0;
+        long began = System.nanoTime();
+        for (int c = 0; c < cafes; c++) {
+            byte[] csv = generator.csv(c, 1, start, days, step);
+            rows += days * (24L * 60 / step);
+            HttpResponse<String> response = client.send(uploadRequest(csv, "seed-" + c + ".csv"),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding café " + c + " failed: " + response.statusCode() + " " + response.body());
+            }
+            Matcher m = CAFE_ID.matcher(response.body());
+            if (!m.find()) throw new IllegalStateException("No cafeId in upload response: " + response.body());
+            ids[c] = Long.parseLong(m.group(1));
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        System.out.printf(Locale.ROOT, "Seeded %d cafés, %,d rows in %.1fs (%,.0f rows/s)%n",
+                cafes, rows, seconds, rows / seconds);
+        return ids;
+    }
+
+    private List<LatencyRecorder.Summary> run(long[] cafeIds, LocalDate firstUploadDay, int uploadDays, int step,
+                                              double uploadRate, double insightsRate,
+                                              Duration duration, Duration warmup) throws InterruptedException {
+        LatencyRecorder uploads = new LatencyRecorder("upload");
+        LatencyRecorder insights = new LatencyRecorder("insights");
+        AtomicLong uploadedRows = new AtomicLong();
+        AtomicInteger uploadSeq = new AtomicInteger();
+        long rowsPerUpload = uploadDays * (24L * 60 / step);
+
+        long t0 = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = t0 + warmup.toNanos();
+        long end = t0 + warmup.toNanos() + duration.toNanos();
+
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            Thread uploadScheduler = schedule("upload-scheduler", uploadRate, t0, end, requests, intended -> {
+                int n = uploadSeq.getAndIncrement();
+                int cafe = n % cafeIds.length;
+                LocalDate day = firstUploadDay.plusDays((long) (n / cafeIds.length) * uploadDays);
+                byte[] csv = generator.csv(cafe, 1, day, uploadDays, step);
+                int status = send(uploadRequest(csv, "load-" + n + ".csv"));
+                if (intended >= measureFrom) {
+                    uploads.record(System.nanoTime() - intended, status);
+                    if (status == 200) uploadedRows.addAndGet(rowsPerUpload);
+                }
+            });
+            Thread insightsScheduler = schedule("insights-scheduler", insightsRate, t0, end, requests, intended -> {
+                long id = cafeIds[ThreadLocalRandom.current().nextInt(cafeIds.length)];
+                int status = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/cafes/" + id + "/insights"))
+                        .timeout(Duration.ofSeconds(60)).GET().build());
+                if (intended >= measureFrom) {
+                    insights.record(System.nanoTime() - intended, status);
+                }
+            });
+            uploadScheduler.join();
+            insightsScheduler.join();
+            // the executor's close() waits for in-flight requests
+        }
+
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf(Locale.ROOT, "Ingested %,d rows during the run (%,.0f rows/s)%n",
+                uploadedRows.get(), uploadedRows.get() / seconds);
+        return List.of(uploads.summarize(seconds), insights.summarize(seconds));
+    }
+
+    /**
+     * Start a thread that fires {@code task} at {@code ratePerSecond}, each on its own virtual thread,
+     * until {@code end}. The task receives the intended start time of its request.
+     */
+    private static Thread schedule(String name, double ratePerSecond, long t0, long end,
+                                   ExecutorService requests, RequestTask task) {
+        return Thread.ofPlatform().name(name).start(() -> {
+            if (ratePerSecond <= 0) return;
+            long interval = (long) (1e9 / ratePerSecond);
+            for (long n = 0; ; n++) {
+                long intended = t0 + n * interval;
+                if (intended >= end) return;
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                requests.submit(() -> task.run(intended));
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface RequestTask {
+        void run(long intendedStartNanos);
+    }
+
+    private int send(HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private HttpRequest uploadRequest(byte[] csv, String fileName) {
+        byte[] head = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/cafes/upload?mode=" + uploadMode))
+                .timeout(Duration.ofMinutes(5))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, csv, tail)))
+                .build();
+    }
+
+    private static void report(Map<String, String> opts, List<LatencyRecorder.Summary> results) throws IOException {
+        System.out.printf("%-9s %8s %8s %8s %6s %10s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "ok", "503", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (LatencyRecorder.Summary s : results) {
+            System.out.println(s.toRow());
+        }
+        String reportFile = opts.get("report");
+        if (reportFile == null) return;
+        Path path = Path.of(reportFile);
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(path)) lines.add(LatencyRecorder.Summary.CSV_HEADER);
+        String label = opts.getOrDefault("label", "run");
+        for (LatencyRecorder.Summary s : results) {
+            lines.add(s.toCsv(label));
+        }
+        Files.write(path, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
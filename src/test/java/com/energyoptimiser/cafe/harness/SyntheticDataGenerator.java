@@ -0,0 +1,188 @@
+package com.energyoptimiser.cafe.harness;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generates realistic café energy CSVs in the upload format (name,location,timestamp,kwh).
+ * <p>
+ * Each café gets its own size, opening-hours shape (breakfast and lunch peaks over a small
+ * always-on base load), weekend behaviour and winter/summer swing, plus multiplicative noise and
+ * the occasional spike. Everything is derived from the seed and the café index, so the same
+ * arguments always produce the same file and a café generated in two chunks looks like one
+ * continuous history. Rows are streamed, so multi-million-row files need no extra memory.
+ * <p>
+ * Usage (writes to stdout when --out is omitted):
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.energyoptimiser.cafe.harness.SyntheticDataGenerator \
+ *     -Dexec.args="--cafes=50 --days=365 --step-minutes=1 --out=target/readings.csv"
+ * </pre>
+ */
+public final class SyntheticDataGenerator {
+
+    public static final String HEADER = "name,location,timestamp,kwh";
+
+    private static final String[] LOCATIONS = {
+            "London", "Manchester", "Leeds", "Bristol", "Glasgow", "Cardiff", "York", "Brighton"
+    };
+
+    private final long seed;
+
+    public SyntheticDataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opts = HarnessArgs.parse(args);
+        int cafes = HarnessArgs.intOpt(opts, "cafes", 10);
+        int days = HarnessArgs.intOpt(opts, "days", 30);
+        int step = HarnessArgs.intOpt(opts, "step-minutes", 60);
+        LocalDate start = LocalDate.parse(opts.getOrDefault("start", "2025-01-01"));
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(HarnessArgs.longOpt(opts, "seed", 42L));
+
+        long began = System.nanoTime();
+        long rows;
+        String out = opts.get("out");
+        try (Writer writer = out == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedWriter(Path.of(out), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            rows = generator.write(writer, 0, cafes, start, days, step);
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        System.err.printf("Generated %,d rows for %d cafés in %.1fs%n", rows, cafes, seconds);
+    }
+
+    /**
+     * Build a complete CSV (with header) in memory, e.g. for a single upload.
+     */
+    public byte[] csv(int firstCafe, int cafes, LocalDate start, int days, int stepMinutes) {
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        try {
+            write(sb, firstCafe, cafes, start, days, stepMinutes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Append data rows (no header) for cafés {@code firstCafe .. firstCafe + cafes - 1}, one row per
+     * café per {@code stepMinutes} interval, in timestamp order within each café.
+     *
+     * @return number of rows written
+     */
+    public long write(Appendable out, int firstCafe, int cafes, LocalDate start, int days, int stepMinutes)
+            throws IOException {
+        if (stepMinutes < 1 || (60 % stepMinutes != 0 && stepMinutes % 60 != 0)) {
+            throw new IllegalArgumentException("step-minutes must divide an hour or be whole hours: " + stepMinutes);
+        }
+        long rows = 0;
+        StringBuilder line = new StringBuilder(64);
+        for (int c = firstCafe; c < firstCafe + cafes; c++) {
+            Cafe cafe = cafe(c);
+            SplittableRandom noise = new SplittableRandom(seed * 31 + c * 1_000_003L + start.toEpochDay());
+            for (int d = 0; d < days; d++) {
+                LocalDate date = start.plusDays(d);
+                String datePrefix = date + "T";
+                double dayFactor = cafe.dayFactor(date);
+                for (int minute = 0; minute < 24 * 60; minute += stepMinutes) {
+                    double kwh = cafe.hourly(minute / 60.0) * dayFactor * stepMinutes / 60.0;
+                    kwh *= Math.max(0.0, 1.0 + 0.08 * gaussian(noise));
+                    if (noise.nextDouble() < 0.0005) {
+                        kwh *= 3.0 + 2.0 * noise.nextDouble(); // equipment fault / catering event
+                    }
+                    line.setLength(0);
+                    line.append(cafe.name).append(',').append(cafe.location).append(',').append(datePrefix);
+                    appendTwoDigits(line, minute / 60).append(':');
+                    appendTwoDigits(line, minute % 60).append(":00,");
+                    appendKwh(line, kwh).append('\n');
+                    out.append(line);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Deterministic characteristics of the café with the given index.
+     */
+    public Cafe cafe(int index) {
+        SplittableRandom r = new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (index + 1)));
+        return new Cafe(
+                "Cafe " + (index + 1),
+                LOCATIONS[index % LOCATIONS.length],
+                0.8 + 2.5 * r.nextDouble(),          // kWh per hour at a normal open hour
+                6 + r.nextInt(3),                     // opening hour
+                17 + r.nextInt(5),                    // closing hour
+                0.5 + 0.9 * r.nextDouble(),           // weekend vs weekday level
+                0.1 + 0.3 * r.nextDouble(),           // winter/summer swing
+                0.4 + 0.8 * r.nextDouble(),           // breakfast peak height
+                0.3 + 0.9 * r.nextDouble());          // lunch peak height
+    }
+
+    public record Cafe(String name, String location, double baseKwh, int opens, int closes,
+                       double weekendFactor, double seasonalSwing, double breakfastPeak, double lunchPeak) {
+
+        /**
+         * Hourly kWh at a fractional hour of day before day-level factors and noise.
+         */
+        double hourly(double hour) {
+            if (hour < opens - 1 || hour >= closes + 1) {
+                return baseKwh * 0.15; // refrigeration and standby only
+            }
+            double shape = 1.0
+                    + breakfastPeak * Math.exp(-sq(hour - (opens + 1.5)) / 2.0)
+                    + lunchPeak * Math.exp(-sq(hour - 12.5) / 1.5);
+            if (hour < opens || hour >= closes) {
+                shape *= 0.5; // setting up / cleaning down
+            }
+            return baseKwh * shape;
+        }
+
+        double dayFactor(LocalDate date) {
+            DayOfWeek dow = date.getDayOfWeek();
+            double weekday = dow == DayOfWeek.SATURDAY || dow == DayOfWeek.SUNDAY ? weekendFactor
+                    : dow == DayOfWeek.FRIDAY ? 1.1 : 1.0;
+            // heating/lighting load peaks in mid-January
+            double season = 1.0 + seasonalSwing * Math.cos(2 * Math.PI * (date.getDayOfYear() - 15) / 365.25);
+            return weekday * season;
+        }
+
+        private static double sq(double x) {
+            return x * x;
+        }
+    }
+
+    private static double gaussian(SplittableRandom r) {
+        // Box-Muller; SplittableRandom has no nextGaussian
+        double u = 1.0 - r.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2 * Math.PI * r.nextDouble());
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static StringBuilder appendKwh(StringBuilder sb, double kwh) {
+        long milli = Math.round(kwh * 1000);
+        sb.append(milli / 1000).append('.');
+        long frac = milli % 1000;
+        if (frac < 100) sb.append('0');
+        if (frac < 10) sb.append('0');
+        return sb.append(frac);
+    }
+}
@@ -0,0 +1,48 @@
+package com.energyoptimiser.cafe.harness;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyntheticDataGeneratorTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 6); // a Monday
+
+    @Test
+    void csv_hasHeaderAndOneRowPerCafePerStep() {
+        String[] lines = csv(new SyntheticDataGenerator(1), 0, 2, 3, 15);
+
+        assertThat(lines[0]).isEqualTo(SyntheticDataGenerator.HEADER);
+        assertThat(lines).hasSize(1 + 2 * 3 * 96);
+        String[] first = lines[1].split(",");
+        assertThat(first).hasSize(4);
+        assertThat(LocalDateTime.parse(first[2])).isEqualTo(START.atStartOfDay());
+        assertThat(LocalDateTime.parse(lines[2].split(",")[2])).isEqualTo(START.atTime(0, 15));
+        assertThat(Arrays.stream(lines).skip(1).mapToDouble(l -> Double.parseDouble(l.split(",")[3])).min().orElseThrow())
+                .isGreaterThanOrEqualTo(0.0);
+    }
+
+    @Test
+    void sameSeed_producesSameData_andCafesDifferByIndex() {
+        assertThat(csv(new SyntheticDataGenerator(7), 0, 1, 2, 60))
+                .containsExactly(csv(new SyntheticDataGenerator(7), 0, 1, 2, 60));
+        assertThat(new SyntheticDataGenerator(7).cafe(0)).isNotEqualTo(new SyntheticDataGenerator(7).cafe(1));
+    }
+
+    @Test
+    void openHours_useMoreEnergyThanNight() {
+        SyntheticDataGenerator.Cafe cafe = new SyntheticDataGenerator(3).cafe(0);
+
+        assertThat(cafe.hourly(12.5)).isGreaterThan(cafe.hourly(3) * 3);
+        assertThat(cafe.dayFactor(LocalDate.of(2025, 1, 15))).isGreaterThan(cafe.dayFactor(LocalDate.of(2025, 7, 16)));
+    }
+
+    private static String[] csv(SyntheticDataGenerator generator, int first, int cafes, int days, int step) {
+        return new String(generator.csv(first, cafes, START, days, step), StandardCharsets.UTF_8).split("\n");
+    }
+}
@@ -1,18 +1,23 @@
 package com.energyoptimiser.cafe.service;
 
+import com.energyoptimiser.cafe.dto.CafeDataVersion;
 import com.energyoptimiser.cafe.model.CafeProfile;
 import com.energyoptimiser.cafe.model.EnergyReading;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
 import com.energyoptimiser.cafe.repository.EnergyReadingRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -21,6 +26,7 @@ import static org.mockito.Mockito.when;
 class AnalyticsServiceTest {
 
     private EnergyReadingRepository energyReadingRepository;
+    private CafeProfileRepository cafeProfileRepository;
     private AnalyticsService analyticsService;
 
     private CafeProfile cafe;
@@ -28,7 +34,8 @@ class AnalyticsServiceTest {
     @BeforeEach
     void setUp() {
         energyReadingRepository = Mockito.mock(EnergyReadingRepository.class);
-        analyticsService = new AnalyticsService(energyReadingRepository);
+        cafeProfileRepository = Mockito.mock(CafeProfileRepository.class);
+        analyticsService = new AnalyticsService(energyReadingRepository, cafeProfileRepository);
         cafe = CafeProfile.builder().id(1L).name("Cafe A").location("Loc").build();
     }
 
@@ -92,4 +99,70 @@ class AnalyticsServiceTest {
         assertThat(data.averageDailyUsage()).isEqualTo(11.0);
         assertThat(data.maxDailyUsage()).isEqualTo(15.0);
     }
+
+    @Test
+    void computeAnalytics_buildsWeekdayAndMonthHourCubesInSamePass() {
+        // 2025-01-04 is a Saturday, 2025-01-06 a Monday
+        when(energyReadingRepository.findByCafe_Id(anyLong())).thenReturn(List.of(
+                EnergyReading.builder().id(1L).cafe(cafe).timestamp(LocalDateTime.of(2025,1,4,11,0)).kwh(6).build(),
+                EnergyReading.builder().id(2L).cafe(cafe).timestamp(LocalDateTime.of(2025,1,4,11,30)).kwh(4).build(),
+                EnergyReading.builder().id(3L).cafe(cafe).timestamp(LocalDateTime.of(2025,1,11,11,0)).kwh(2).build(),
+                EnergyReading.builder().id(4L).cafe(cafe).timestamp(LocalDateTime.of(2025,1,6,8,0)).kwh(3).build(),
+                EnergyReading.builder().id(5L).cafe(cafe).timestamp(LocalDateTime.of(2025,2,3,8,0)).kwh(1).build()
+        ));
+
+        AnalyticsService.AnalyticsData data = analyticsService.computeAnalytics(1L);
+
+        LoadCube weekday = data.weekdayHourLoad();
+        int saturday = DayOfWeek.SATURDAY.getValue() - 1;
+        int monday = DayOfWeek.MONDAY.getValue() - 1;
+        assertThat(weekday.rows()).isEqualTo(7);
+        assertThat(weekday.sum(saturday, 11)).isEqualTo(12.0);
+        // two Saturdays with data: 10 kWh and 2 kWh at 11:00
+        assertThat(weekday.count(saturday, 11)).isEqualTo(2);
+        assertThat(weekday.mean(saturday, 11)).isEqualTo(6.0);
+        assertThat(weekday.max(saturday, 11)).isEqualTo(10.0);
+        assertThat(weekday.sum(monday, 8)).isEqualTo(4.0);
+        assertThat(weekday.count(DayOfWeek.TUESDAY.getValue() - 1, 8)).isZero();
+        assertThat(weekday.busiestCell()).isEqualTo(saturday * 24 + 11);
+
+        LoadCube monthly = data.monthHourLoad();
+        assertThat(monthly.rows()).isEqualTo(12);
+        assertThat(monthly.sum(0, 8)).isEqualTo(3.0);
+        assertThat(monthly.sum(1, 8)).isEqualTo(1.0);
+
+        // the cube is built from the same single fetch as the other views
+        verify(energyReadingRepository, times(1)).findByCafe_Id(1L);
+        assertThat(data.dailyUsage().get(LocalDate.of(2025,1,4))).isEqualTo(10.0);
+        assertThat(data.hourlyUsage().get(11)).isEqualTo(12.0);
+    }
+
+    @Test
+    void computeAnalytics_strayOldReading_doesNotStretchTheDenseSeries() {
+        when(energyReadingRepository.findByCafe_Id(anyLong())).thenReturn(List.of(
+                EnergyReading.builder().id(1L).cafe(cafe).timestamp(LocalDateTime.of(1,1,1,8,0)).kwh(2).build(),
+                EnergyReading.builder().id(2L).cafe(cafe).timestamp(LocalDateTime.of(2025,1,1,8,0)).kwh(10).build(),
+                EnergyReading.builder().id(3L).cafe(cafe).timestamp(LocalDateTime.of(2025,1,2,9,0)).kwh(5).build()
+        ));
+
+        AnalyticsService.AnalyticsData data = analyticsService.computeAnalytics(1L);
+
+        // the series ends at the latest reading and is capped, instead of spanning 2025 years
+        assertThat(data.hourlySeries().days()).isEqualTo(AnalyticsService.MAX_SERIES_DAYS);
+        assertThat(data.hourlySeries().firstDay())
+                .isEqualTo(LocalDate.of(2025,1,2).minusDays(AnalyticsService.MAX_SERIES_DAYS - 1));
+        // ...while the stray reading still counts in the sparse views
+        assertThat(data.dailyUsage()).containsEntry(LocalDate.of(1,1,1), 2.0);
+        assertThat(data.hourlyUsage().get(8)).isEqualTo(12.0);
+        assertThat(data.weekdayHourLoad().sum(LocalDate.of(1,1,1).getDayOfWeek().getValue() - 1, 8)).isEqualTo(2.0);
+    }
+
+    @Test
+    void loadHourlySeries_carriesTheDataVersionItWasReadAt() {
+        when(cafeProfileRepository.findDataVersionById(1L)).thenReturn(Optional.of(new CafeDataVersion(1L, 7, null)));
+        when(energyReadingRepository.findByCafe_Id(1L)).thenReturn(sampleReadingsForDaily());
+
+        assertThat(analyticsService.loadHourlySeries(1L).dataVersion()).isEqualTo(7);
+        assertThat(analyticsService.computeAnalytics(1L).hourlySeries().dataVersion()).isEqualTo(7);
+    }
 }
@@ -0,0 +1,96 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.AnomalyDetectionProperties;
+import com.energyoptimiser.cafe.model.AnomalyType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AnomalyDetectorTest {
+
+    private AnomalyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        AnomalyDetectionProperties props = new AnomalyDetectionProperties();
+        props.setWarmupSamples(5);
+        props.setWindow(3);
+        detector = new AnomalyDetector(props);
+    }
+
+    /** Feed `days` days of hourly readings: 1 kWh overnight, 5 kWh during opening hours. */
+    private void warmUp(Long cafeId, int days) {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int d = 0; d < days; d++) {
+            for (int h = 0; h < 24; h++) {
+                double kwh = (h >= 7 && h < 18 ? 5.0 : 1.0) + (d % 2 == 0 ? 0.1 : -0.1);
+                assertThat(detector.observe(cafeId, start.plusDays(d).plusHours(h), kwh)).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    void observe_flagsSpikeAgainstHourOfDayBaseline() {
+        warmUp(1L, 10);
+
+        // 5 kWh is normal at noon but a spike at 2am
+        assertThat(detector.observe(1L, LocalDateTime.of(2025, 2, 1, 12, 0), 5.0)).isEmpty();
+        Optional<AnomalyDetector.Detection> night = detector.observe(1L, LocalDateTime.of(2025, 2, 1, 2, 0), 5.0);
+
+        assertThat(night).isPresent();
+        assertThat(night.get().type()).isEqualTo(AnomalyType.SPIKE);
+        assertThat(night.get().expectedKwh()).isCloseTo(1.0, within(0.2));
+    }
+
+    @Test
+    void observe_flagsDrop() {
+        warmUp(1L, 10);
+
+        var drop = detector.observe(1L, LocalDateTime.of(2025, 2, 1, 12, 0), 0.0);
+
+        assertThat(drop).map(AnomalyDetector.Detection::type).contains(AnomalyType.DROP);
+    }
+
+    @Test
+    void observe_flagsSustainedHighOnceAtStartOfRun() {
+        warmUp(1L, 10);
+
+        // 1.3 kWh overnight is a mild (not spike-level) elevation, repeated for several hours
+        LocalDateTime night = LocalDateTime.of(2025, 2, 1, 0, 0);
+        assertThat(detector.observe(1L, night, 1.3)).isEmpty();
+        assertThat(detector.observe(1L, night.plusHours(1), 1.3)).isEmpty();
+        var third = detector.observe(1L, night.plusHours(2), 1.3);
+        var fourth = detector.observe(1L, night.plusHours(3), 1.3);
+
+        assertThat(third).map(AnomalyDetector.Detection::type).contains(AnomalyType.SUSTAINED_HIGH);
+        assertThat(fourth).isEmpty();
+    }
+
+    @Test
+    void observe_doesNotFlagBeforeWarmUp_andKeepsStatePerCafe() {
+        assertThat(detector.observe(1L, LocalDateTime.of(2025, 1, 1, 2, 0), 1.0)).isEmpty();
+        assertThat(detector.observe(1L, LocalDateTime.of(2025, 1, 2, 2, 0), 50.0)).isEmpty();
+        assertThat(detector.observe(2L, LocalDateTime.of(2025, 1, 1, 2, 0), 50.0)).isEmpty();
+
+        assertThat(detector.trackedCafes()).isEqualTo(2);
+    }
+
+    @Test
+    void batch_scoresLikeObserve_butLeavesBaselinesUntouched() {
+        warmUp(1L, 10);
+        LocalDateTime night = LocalDateTime.of(2025, 2, 1, 2, 0);
+
+        AnomalyDetector.Batch batch = detector.batch();
+        assertThat(batch.observe(1L, night, 5.0)).map(AnomalyDetector.Detection::type).contains(AnomalyType.SPIKE);
+        assertThat(batch.observe(2L, night, 5.0)).isEmpty();
+        assertThat(detector.trackedCafes()).isEqualTo(1);
+
+        // the live baseline still sees the same spike, once
+        assertThat(detector.observe(1L, night, 5.0)).map(AnomalyDetector.Detection::type).contains(AnomalyType.SPIKE);
+    }
+}
@@ -0,0 +1,87 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.ForecastProperties;
+import com.energyoptimiser.cafe.dto.CafeDataVersion;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import com.energyoptimiser.cafe.model.CafeProfile;
+import com.energyoptimiser.cafe.model.EnergyReading;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ForecastServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 6);
+
+    private AnalyticsService analyticsService;
+    private DataVersionService dataVersionService;
+    private ForecastService forecastService;
+
+    @BeforeEach
+    void setUp() {
+        analyticsService = Mockito.mock(AnalyticsService.class);
+        dataVersionService = Mockito.mock(DataVersionService.class);
+        forecastService = new ForecastService(new ForecastProperties(), analyticsService, dataVersionService);
+    }
+
+    private static AnalyticsService.HourlySeries history(int days, double kwh, long dataVersion) {
+        double[] series = new double[days * 24];
+        Arrays.fill(series, kwh);
+        return new AnalyticsService.HourlySeries(START, series, Collections.emptySortedMap(), dataVersion);
+    }
+
+    private static AnalyticsService.AnalyticsData analytics(AnalyticsService.HourlySeries series) {
+        return new AnalyticsService.AnalyticsData(1L, Map.of(), Map.of(), List.of(), 0, 0, null, null, series);
+    }
+
+    private void currentVersion(long version) {
+        when(dataVersionService.current(1L)).thenReturn(new CafeDataVersion(1L, version, null));
+    }
+
+    @Test
+    void nextDay_catchesUpWithTheAnalyticsVersion_beforeAfterCommitUpdatesArrive() {
+        forecastService.nextDay(analytics(history(14, 1.0, 1)));
+
+        // version 2 has committed with twice the load, but this instance has not observed it yet
+        var forecast = forecastService.nextDay(analytics(history(15, 2.0, 2))).orElseThrow();
+
+        assertThat(forecast.total()).isGreaterThan(30.0);
+        // a late after-commit update for version 2 is not counted again
+        CafeProfile cafe = CafeProfile.builder().id(1L).build();
+        forecastService.observe(1L, 2, List.of(EnergyReading.builder().cafe(cafe)
+                .timestamp(START.plusDays(14).atTime(23, 0)).kwh(100.0).build()));
+        assertThat(forecastService.nextDay(analytics(history(15, 2.0, 2))).orElseThrow().kwh())
+                .containsExactly(forecast.kwh());
+        verify(analyticsService, never()).loadHourlySeries(1L);
+    }
+
+    @Test
+    void getForecast_readsTheHistoryOncePerDataVersion() {
+        // three days: too little history to forecast, but no reason to read it again either
+        when(analyticsService.loadHourlySeries(1L)).thenReturn(history(3, 1.0, 4));
+        currentVersion(4);
+
+        assertThrows(BadRequestException.class, () -> forecastService.getForecast(1L, 24));
+        assertThrows(BadRequestException.class, () -> forecastService.getForecast(1L, 24));
+        verify(analyticsService, times(1)).loadHourlySeries(1L);
+
+        when(analyticsService.loadHourlySeries(1L)).thenReturn(history(10, 1.0, 5));
+        currentVersion(5);
+
+        assertThat(forecastService.getForecast(1L, 24).kwh()).hasSize(24);
+        verify(analyticsService, times(2)).loadHourlySeries(1L);
+    }
+}
@@ -1,21 +1,31 @@
 package com.energyoptimiser.cafe.service;
 
+import com.energyoptimiser.cafe.config.IngestionProperties;
 import com.energyoptimiser.cafe.dto.UploadResponse;
 import com.energyoptimiser.cafe.exception.BadRequestException;
 import com.energyoptimiser.cafe.model.CafeProfile;
 import com.energyoptimiser.cafe.model.EnergyReading;
+import com.energyoptimiser.cafe.model.RejectedUpload;
 import com.energyoptimiser.cafe.repository.CafeProfileRepository;
 import com.energyoptimiser.cafe.repository.EnergyReadingRepository;
+import com.energyoptimiser.cafe.repository.RejectedUploadRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -27,13 +37,40 @@ class IngestionServiceTest {
 
     private CafeProfileRepository cafeRepo;
     private EnergyReadingRepository readingRepo;
+    private AnomalyService anomalyService;
+    private DataVersionService dataVersionService;
+    private ForecastService forecastService;
+    private LoadProfileIndex loadProfileIndex;
+    private PlatformTransactionManager transactionManager;
+    private IngestionProperties properties;
     private IngestionService ingestionService;
 
     @BeforeEach
     void setUp() {
         cafeRepo = Mockito.mock(CafeProfileRepository.class);
         readingRepo = Mockito.mock(EnergyReadingRepository.class);
-        ingestionService = new IngestionService(cafeRepo, readingRepo);
+        anomalyService = Mockito.mock(AnomalyService.class);
+        dataVersionService = Mockito.mock(DataVersionService.class);
+        forecastService = Mockito.mock(ForecastService.class);
+        transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        properties = new IngestionProperties();
+        loadProfileIndex = new LoadProfileIndex();
+        when(dataVersionService.bump(any())).thenAnswer(inv -> {
+            Map<Long, Long> versions = new HashMap<>();
+            for (Long id : inv.<Set<Long>>getArgument(0)) versions.put(id, 1L);
+            return versions;
+        });
+        RejectedUploadRepository rejectedUploadRepo = Mockito.mock(RejectedUploadRepository.class);
+        Map<String, RejectedUpload> rejectedUploads = new HashMap<>();
+        when(rejectedUploadRepo.save(any(RejectedUpload.class))).thenAnswer(inv -> {
+            RejectedUpload upload = inv.getArgument(0);
+            rejectedUploads.put(upload.getUploadId(), upload);
+            return upload;
+        });
+        when(rejectedUploadRepo.findById(any())).thenAnswer(inv -> Optional.ofNullable(rejectedUploads.get(inv.<String>getArgument(0))));
+        ingestionService = new IngestionService(cafeRepo, readingRepo, anomalyService, loadProfileIndex,
+                dataVersionService, forecastService, properties, new RejectedRowStore(rejectedUploadRepo, properties),
+                transactionManager);
     }
 
     @Test
@@ -65,6 +102,13 @@ class IngestionServiceTest {
         verify(cafeRepo, times(1)).save(any(CafeProfile.class));
         // Two readings saved
         verify(readingRepo, times(2)).save(any(EnergyReading.class));
+        // Every saved reading goes through anomaly detection, in one batch
+        verify(anomalyService, times(1)).inspect(argThat(readings -> readings.size() == 2));
+        verify(anomalyService, times(1)).learn(argThat(readings -> readings.size() == 2));
+        // ...and into the café's forecast model, tagged with its new data version
+        verify(forecastService, times(1)).observe(eq(42L), eq(1L), argThat(readings -> readings.size() == 2));
+        // The café's data version is bumped once for the whole upload
+        verify(dataVersionService, times(1)).bump(Set.of(42L));
 
         // Capture a reading and assert parsed values
         ArgumentCaptor<EnergyReading> captor = ArgumentCaptor.forClass(EnergyReading.class);
@@ -89,6 +133,78 @@ class IngestionServiceTest {
 
         // repository should not be called
         verifyNoInteractions(readingRepo);
+        verifyNoInteractions(dataVersionService);
+    }
+
+    @Test
+    void processCSV_failedUpload_leavesInMemoryModelsUntouched() {
+        String csv = """
+                name,location,timestamp,kwh
+                Cafe A,Loc,2025-01-01T08:00:00,1.5
+                Cafe A,Loc,2025-01-01T09:00:00,oops
+                """;
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "bad.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        CafeProfile cafe = CafeProfile.builder().id(42L).name("Cafe A").location("Loc").build();
+        when(cafeRepo.findByNameAndLocation("Cafe A", "Loc")).thenReturn(Optional.of(cafe));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(BadRequestException.class, () -> ingestionService.processCSV(file));
+            // the first row was saved, to be rolled back, and nothing waits for a commit
+            verify(readingRepo, times(1)).save(any(EnergyReading.class));
+            assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verifyNoInteractions(anomalyService, forecastService);
+        assertThat(loadProfileIndex.contains(42L)).isFalse();
+    }
+
+    @Test
+    void processCSV_feedsModelsOnlyAfterCommit() {
+        String csv = """
+                name,location,timestamp,kwh
+                Cafe A,Loc,2025-01-01T08:00:00,1.5
+                Cafe A,Loc,2025-01-01T09:00:00,2.5
+                """;
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "ok.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        CafeProfile cafe = CafeProfile.builder().id(42L).name("Cafe A").location("Loc").build();
+        when(cafeRepo.findByNameAndLocation("Cafe A", "Loc")).thenReturn(Optional.of(cafe));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ingestionService.processCSV(file);
+            // anomalies are saved with the readings; the baselines wait for the commit
+            verify(anomalyService, times(1)).inspect(argThat(readings -> readings.size() == 2));
+            verify(anomalyService, never()).learn(any());
+            verifyNoInteractions(forecastService);
+            assertThat(loadProfileIndex.contains(42L)).isFalse();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(anomalyService, times(1)).learn(argThat(readings -> readings.size() == 2));
+        verify(forecastService, times(1)).observe(eq(42L), eq(1L), argThat(readings -> readings.size() == 2));
+        assertThat(loadProfileIndex.contains(42L)).isTrue();
+        assertThat(loadProfileIndex.version(42L)).isEqualTo(1L);
+    }
+
+    @Test
+    void processCSV_rejectsImplausibleTimestamps() {
+        String csv = "name,location,timestamp,kwh\n" +
+                "Cafe A,Loc,0001-01-01T08:00:00,1.5\n";
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "typo.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> ingestionService.processCSV(file));
+
+        assertThat(exception.getMessage()).contains("Implausible timestamp: 0001-01-01T08:00:00");
+        verifyNoInteractions(readingRepo);
     }
 
     @Test
@@ -111,4 +227,155 @@ class IngestionServiceTest {
         verify(cafeRepo, never()).save(any());
         verify(readingRepo, times(2)).save(any(EnergyReading.class));
     }
+
+    @Test
+    void processCSVLenient_skipsBadRows_andReportsThem() {
+        String csv = """
+                name,location,timestamp,kwh
+                Cafe C,Loc,2025-01-01T08:00:00,1.5
+                Cafe C,Loc,2025-01-01T09:00:00
+                Cafe C,Loc,yesterday,2.0
+                Cafe C,Loc,2025-01-01T10:00:00,abc
+                Cafe C,Loc,2025-01-01T11:00:00,3.0
+                """;
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "mixed.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        CafeProfile cafe = CafeProfile.builder().id(9L).name("Cafe C").location("Loc").build();
+        when(cafeRepo.findByNameAndLocation("Cafe C", "Loc")).thenReturn(Optional.of(cafe));
+
+        UploadResponse response = ingestionService.processCSVLenient(file);
+
+        assertThat(response.cafeId()).isEqualTo(9L);
+        assertThat(response.rowsImported()).isEqualTo(2);
+        assertThat(response.rowsRejected()).isEqualTo(3);
+        assertThat(response.status()).isEqualTo("PARTIAL");
+        assertThat(response.uploadId()).isNotNull();
+        verify(readingRepo, times(2)).save(any(EnergyReading.class));
+        verify(dataVersionService).bump(Set.of(9L));
+
+        RejectedRowReport report = ingestionService.getRejectedRows(response.uploadId());
+        assertThat(report.rows()).extracting(RejectedRowReport.RejectedRow::line).containsExactly(3, 4, 5);
+        assertThat(report.rows().get(0).reason()).contains("Invalid CSV row");
+        assertThat(report.rows().get(1).reason()).isEqualTo("Invalid timestamp: yesterday");
+        assertThat(report.rows().get(2).reason()).contains("Invalid kWh value");
+        assertThat(report.toCsv()).startsWith("line,reason,row\n3,");
+    }
+
+    @Test
+    void processCSVLenient_rejectsNonFiniteAndNegativeKwh() {
+        String csv = """
+                name,location,timestamp,kwh
+                Cafe F,Loc,2025-01-01T08:00:00,NaN
+                Cafe F,Loc,2025-01-01T09:00:00,Infinity
+                Cafe F,Loc,2025-01-01T10:00:00,-1.5
+                Cafe F,Loc,2025-01-01T11:00:00,0
+                """;
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "values.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        CafeProfile cafe = CafeProfile.builder().id(11L).name("Cafe F").location("Loc").build();
+        when(cafeRepo.findByNameAndLocation("Cafe F", "Loc")).thenReturn(Optional.of(cafe));
+
+        UploadResponse response = ingestionService.processCSVLenient(file);
+
+        assertThat(response.rowsImported()).isEqualTo(1);
+        RejectedRowReport report = ingestionService.getRejectedRows(response.uploadId());
+        assertThat(report.rows()).extracting(RejectedRowReport.RejectedRow::reason).containsExactly(
+                "Invalid kWh value: NaN", "Invalid kWh value: Infinity", "Invalid kWh value: -1.5");
+    }
+
+    @Test
+    void processCSVLenient_reportsRowsTheDatabaseRefuses() {
+        properties.setChunkSize(3);
+        String csv = """
+                name,location,timestamp,kwh
+                Cafe G,Loc,2025-01-01T08:00:00,1
+                Cafe G,Loc,2025-01-01T09:00:00,2
+                Cafe G,Loc,2025-01-01T10:00:00,3
+                """;
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "refused.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        CafeProfile cafe = CafeProfile.builder().id(12L).name("Cafe G").location("Loc").build();
+        when(cafeRepo.findByNameAndLocation("Cafe G", "Loc")).thenReturn(Optional.of(cafe));
+        when(readingRepo.save(argThat(r -> r != null && r.getKwh() == 2.0)))
+                .thenThrow(new DataIntegrityViolationException("duplicate reading"));
+
+        UploadResponse response = ingestionService.processCSVLenient(file);
+
+        // the chunk is rolled back and retried row by row; only the refused row is lost
+        assertThat(response.rowsImported()).isEqualTo(2);
+        assertThat(response.status()).isEqualTo("PARTIAL");
+        RejectedRowReport report = ingestionService.getRejectedRows(response.uploadId());
+        assertThat(report.rows()).extracting(RejectedRowReport.RejectedRow::line).containsExactly(3);
+        assertThat(report.rows().getFirst().reason()).isEqualTo("Could not be saved: duplicate reading");
+        // the whole chunk, then the refused row on its own
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void processCSVLenient_keepsCommittedChunk_whenModelUpdateFails() {
+        properties.setChunkSize(3);
+        String csv = """
+                name,location,timestamp,kwh
+                Cafe H,Loc,2025-01-01T08:00:00,1
+                Cafe H,Loc,2025-01-01T09:00:00,2
+                """;
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "ok.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        CafeProfile cafe = CafeProfile.builder().id(13L).name("Cafe H").location("Loc").build();
+        when(cafeRepo.findByNameAndLocation("Cafe H", "Loc")).thenReturn(Optional.of(cafe));
+        doThrow(new IllegalStateException("model update failed")).when(anomalyService).learn(any());
+
+        UploadResponse response = ingestionService.processCSVLenient(file);
+
+        // the chunk is not retried row by row, so nothing is saved twice or reported as rejected
+        assertThat(response.rowsImported()).isEqualTo(2);
+        assertThat(response.status()).isEqualTo("OK");
+        verify(readingRepo, times(2)).save(any(EnergyReading.class));
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    void processCSVLenient_commitsInChunks() {
+        properties.setChunkSize(2);
+        String csv = """
+                name,location,timestamp,kwh
+                Cafe D,Loc,2025-01-01T08:00:00,1
+                Cafe D,Loc,2025-01-01T09:00:00,2
+                Cafe D,Loc,2025-01-01T10:00:00,3
+                """;
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "chunks.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        CafeProfile cafe = CafeProfile.builder().id(3L).name("Cafe D").location("Loc").build();
+        when(cafeRepo.findByNameAndLocation("Cafe D", "Loc")).thenReturn(Optional.of(cafe));
+
+        UploadResponse response = ingestionService.processCSVLenient(file);
+
+        assertThat(response.rowsImported()).isEqualTo(3);
+        assertThat(response.status()).isEqualTo("OK");
+        assertThat(response.uploadId()).isNull();
+        verify(transactionManager, times(2)).commit(any());
+        verify(dataVersionService, times(2)).bump(Set.of(3L));
+    }
+
+    @Test
+    void processCSVLenient_abortsWhenRejectedRatioTooHigh() {
+        properties.setRatioMinRows(4);
+        String csv = """
+                name,location,timestamp,kwh
+                Cafe E,Loc,2025-01-01T08:00:00,1
+                bad
+                bad
+                bad
+                Cafe E,Loc,2025-01-01T09:00:00,2
+                """;
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "bad.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> ingestionService.processCSVLenient(file));
+
+        assertThat(exception.getMessage()).contains("3 of 4 rows were rejected");
+        verifyNoInteractions(readingRepo);
+    }
 }
@@ -0,0 +1,86 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.dto.CafeSummaryResponse;
+import com.energyoptimiser.cafe.dto.CursorPageResponse;
+import com.energyoptimiser.cafe.dto.ReadingResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import com.energyoptimiser.cafe.exception.CafeNotFoundException;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
+import com.energyoptimiser.cafe.repository.EnergyReadingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ListingServiceTest {
+
+    private CafeProfileRepository cafeRepo;
+    private EnergyReadingRepository readingRepo;
+    private ListingService listingService;
+
+    @BeforeEach
+    void setUp() {
+        cafeRepo = Mockito.mock(CafeProfileRepository.class);
+        readingRepo = Mockito.mock(EnergyReadingRepository.class);
+        listingService = new ListingService(cafeRepo, readingRepo);
+    }
+
+    @Test
+    void listCafes_returnsCursorOnlyWhenMoreRowsExist() {
+        when(cafeRepo.findPageAfter(0L, Limit.of(3))).thenReturn(List.of(
+                new CafeSummaryResponse(1L, "A", "L"),
+                new CafeSummaryResponse(4L, "B", "L"),
+                new CafeSummaryResponse(9L, "C", "L")));
+        when(cafeRepo.findPageAfter(4L, Limit.of(3))).thenReturn(List.of(
+                new CafeSummaryResponse(9L, "C", "L")));
+
+        CursorPageResponse<CafeSummaryResponse> first = listingService.listCafes(null, 2);
+        assertThat(first.items()).extracting(CafeSummaryResponse::id).containsExactly(1L, 4L);
+        assertThat(first.nextCursor()).isNotNull();
+
+        CursorPageResponse<CafeSummaryResponse> second = listingService.listCafes(first.nextCursor(), 2);
+        assertThat(second.items()).extracting(CafeSummaryResponse::id).containsExactly(9L);
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void listReadings_seeksFromLastTimestampAndId() {
+        LocalDateTime t = LocalDateTime.parse("2025-01-01T08:00:00");
+        when(cafeRepo.existsById(5L)).thenReturn(true);
+        when(readingRepo.findFirstPage(5L, Limit.of(2))).thenReturn(List.of(
+                new ReadingResponse(10L, t, 1.0),
+                new ReadingResponse(11L, t, 2.0)));
+
+        CursorPageResponse<ReadingResponse> first = listingService.listReadings(5L, null, 1);
+        assertThat(first.items()).extracting(ReadingResponse::id).containsExactly(10L);
+
+        listingService.listReadings(5L, first.nextCursor(), 1);
+        verify(readingRepo).findPageAfter(5L, t, 10L, Limit.of(2));
+    }
+
+    @Test
+    void listReadings_rejectsCursorFromAnotherListing() {
+        when(cafeRepo.findPageAfter(0L, Limit.of(2))).thenReturn(List.of(
+                new CafeSummaryResponse(1L, "A", "L"),
+                new CafeSummaryResponse(2L, "B", "L")));
+        String cafeCursor = listingService.listCafes(null, 1).nextCursor();
+
+        assertThrows(BadRequestException.class, () -> listingService.listReadings(5L, cafeCursor, 10));
+        assertThrows(BadRequestException.class, () -> listingService.listReadings(5L, "not-a-cursor!", 10));
+    }
+
+    @Test
+    void listReadings_unknownCafe_throwsNotFound() {
+        when(cafeRepo.existsById(99L)).thenReturn(false);
+
+        assertThrows(CafeNotFoundException.class, () -> listingService.listReadings(99L, null, 10));
+    }
+}
@@ -0,0 +1,196 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.ForecastProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LoadForecasterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 6, 0, 0); // a Monday
+
+    /** 1 kWh base, 5 kWh at noon, Saturdays twice as busy. */
+    private static double pattern(LocalDateTime t) {
+        double v = t.getHour() == 12 ? 5.0 : 1.0;
+        return t.getDayOfWeek().getValue() == 6 ? v * 2 : v;
+    }
+
+    @Test
+    void forecast_learnsDailyAndWeeklySeasonality() {
+        LoadForecaster forecaster = new LoadForecaster(new ForecastProperties());
+        LocalDateTime t = START;
+        for (int i = 0; i < 4 * 168; i++, t = t.plusHours(1)) {
+            // four 15-minute readings per hour
+            for (int q = 0; q < 4; q++) {
+                forecaster.observe(1L, t.plusMinutes(15L * q), pattern(t) / 4);
+            }
+        }
+
+        LoadForecaster.Forecast f = forecaster.forecast(1L, 168).orElseThrow();
+
+        // the last hour is still open, so the forecast starts at it
+        assertThat(f.start()).isEqualTo(t.minusHours(1));
+        for (int i = 0; i < 168; i++) {
+            assertThat(f.kwh()[i]).isCloseTo(pattern(f.start().plusHours(i)), within(0.3));
+        }
+        assertThat(f.start().plusHours(f.peakIndex()).getDayOfWeek().getValue()).isEqualTo(6);
+    }
+
+    @Test
+    void forecast_isEmptyDuringFirstWeek() {
+        LoadForecaster forecaster = new LoadForecaster(new ForecastProperties());
+        for (int i = 0; i < 100; i++) {
+            forecaster.observe(1L, START.plusHours(i), 1.0);
+        }
+
+        assertThat(forecaster.forecast(1L, 24)).isEmpty();
+        assertThat(forecaster.isReady(1L)).isFalse();
+    }
+
+    @Test
+    void rebuild_fromHistory_matchesIncrementalModel() {
+        int days = 21;
+        double[] kwh = new double[days * 24];
+        LoadForecaster incremental = new LoadForecaster(new ForecastProperties());
+        for (int i = 0; i < kwh.length; i++) {
+            kwh[i] = pattern(START.plusHours(i));
+            incremental.observe(1L, START.plusHours(i), kwh[i]);
+        }
+        // close the last hour
+        incremental.observe(1L, START.plusHours(kwh.length), 1.0);
+
+        LoadForecaster rebuilt = new LoadForecaster(new ForecastProperties());
+        assertThat(rebuilt.rebuild(1L, new AnalyticsService.HourlySeries(START.toLocalDate(), kwh))).isTrue();
+        // the last hour of history is still open after the rebuild, too
+        rebuilt.observe(1L, START.plusHours(kwh.length), 1.0);
+
+        LoadForecaster.Forecast a = incremental.forecast(1L, 48).orElseThrow();
+        LoadForecaster.Forecast b = rebuilt.forecast(1L, 48).orElseThrow();
+        assertThat(b.start()).isEqualTo(a.start());
+        assertThat(b.kwh()).containsExactly(a.kwh(), within(1e-9));
+    }
+
+    @Test
+    void rebuild_keepsTheTrailingHourOpen() {
+        int hours = 10 * 24 + 5;
+        double[] kwh = new double[hours];
+        LoadForecaster incremental = new LoadForecaster(new ForecastProperties());
+        for (int i = 0; i < hours; i++) {
+            kwh[i] = pattern(START.plusHours(i));
+            incremental.observe(1L, START.plusHours(i), kwh[i] / 2);
+            incremental.observe(1L, START.plusHours(i).plusMinutes(30), kwh[i] / 2);
+        }
+        // the history was read when only the first half of the last hour had arrived
+        kwh[hours - 1] /= 2;
+        LoadForecaster rebuilt = new LoadForecaster(new ForecastProperties());
+        rebuilt.rebuild(1L, new AnalyticsService.HourlySeries(START.toLocalDate(), kwh));
+
+        rebuilt.observe(1L, START.plusHours(hours - 1).plusMinutes(30), kwh[hours - 1]);
+
+        assertThat(rebuilt.isReady(1L)).isTrue();
+        for (LoadForecaster f : new LoadForecaster[] {incremental, rebuilt}) {
+            f.observe(1L, START.plusHours(hours), 1.0);
+        }
+        LoadForecaster.Forecast a = incremental.forecast(1L, 24).orElseThrow();
+        LoadForecaster.Forecast b = rebuilt.forecast(1L, 24).orElseThrow();
+        assertThat(b.start()).isEqualTo(a.start());
+        assertThat(b.kwh()).containsExactly(a.kwh(), within(1e-9));
+    }
+
+    private static AnalyticsService.HourlySeries flatHistory(int days, long dataVersion) {
+        double[] kwh = new double[days * 24];
+        Arrays.fill(kwh, 1.0);
+        return new AnalyticsService.HourlySeries(START.toLocalDate(), kwh, Collections.emptySortedMap(), dataVersion);
+    }
+
+    private static List<LoadForecaster.Reading> hours(int from, int to) {
+        List<LoadForecaster.Reading> readings = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            readings.add(new LoadForecaster.Reading(START.plusHours(i), 1.0));
+        }
+        return readings;
+    }
+
+    @Test
+    void rebuild_onlyMovesForwardByDataVersion() {
+        LoadForecaster forecaster = new LoadForecaster(new ForecastProperties());
+        forecaster.observe(1L, 1, hours(0, 200));
+        assertThat(forecaster.isCurrent(1L, 1)).isTrue();
+
+        // e.g. a lagging replica's older copy
+        assertThat(forecaster.rebuild(1L, flatHistory(7, 0))).isFalse();
+        assertThat(forecaster.rebuild(1L, flatHistory(9, 1))).isFalse();
+        assertThat(forecaster.rebuild(1L, flatHistory(9, 2))).isTrue();
+        assertThat(forecaster.isCurrent(1L, 2)).isTrue();
+
+        // a late reading leaves the model stale; the same version's history repairs it
+        forecaster.observe(1L, 3, hours(3, 4));
+        assertThat(forecaster.isCurrent(1L, 3)).isFalse();
+        assertThat(forecaster.rebuild(1L, flatHistory(9, 3))).isTrue();
+        assertThat(forecaster.isReady(1L)).isTrue();
+    }
+
+    @Test
+    void observe_skipsUploadsARebuildCovers_andFallsBehindOnGaps() {
+        LoadForecaster forecaster = new LoadForecaster(new ForecastProperties());
+        forecaster.rebuild(1L, flatHistory(8, 5));
+
+        // version 5's readings are in the rebuilt history already
+        forecaster.observe(1L, 5, hours(8 * 24 - 1, 8 * 24));
+        assertThat(forecaster.isCurrent(1L, 5)).isTrue();
+        forecaster.observe(1L, 6, hours(8 * 24, 8 * 24 + 1));
+        assertThat(forecaster.isCurrent(1L, 6)).isTrue();
+
+        // version 7 was ingested elsewhere, so after 8 the model is behind
+        forecaster.observe(1L, 8, hours(8 * 24 + 2, 8 * 24 + 3));
+        assertThat(forecaster.isCurrent(1L, 6)).isTrue();
+        assertThat(forecaster.isCurrent(1L, 8)).isFalse();
+    }
+
+    @Test
+    void isCurrent_holdsForAModelWithTooLittleHistory_untilTheVersionChanges() {
+        LoadForecaster forecaster = new LoadForecaster(new ForecastProperties());
+        assertThat(forecaster.isCurrent(1L, 1)).isFalse();
+
+        forecaster.rebuild(1L, flatHistory(3, 1));
+
+        assertThat(forecaster.isReady(1L)).isFalse();
+        assertThat(forecaster.isCurrent(1L, 1)).isTrue();
+        assertThat(forecaster.isCurrent(1L, 2)).isFalse();
+    }
+
+    @Test
+    void lateReading_marksModelStale() {
+        LoadForecaster forecaster = new LoadForecaster(new ForecastProperties());
+        for (int i = 0; i < 200; i++) {
+            forecaster.observe(1L, START.plusHours(i), 1.0);
+        }
+        assertThat(forecaster.isReady(1L)).isTrue();
+
+        forecaster.observe(1L, START.plusHours(3), 1.0);
+
+        assertThat(forecaster.isReady(1L)).isFalse();
+    }
+
+    @Test
+    void forecastNextDay_coversTheFollowingCalendarDay() {
+        LoadForecaster forecaster = new LoadForecaster(new ForecastProperties());
+        for (int i = 0; i < 200; i++) {
+            forecaster.observe(1L, START.plusHours(i), pattern(START.plusHours(i)));
+        }
+
+        LoadForecaster.Forecast f = forecaster.forecastNextDay(1L).orElseThrow();
+
+        LocalDate lastData = START.plusHours(198).toLocalDate();
+        assertThat(f.start()).isEqualTo(lastData.plusDays(1).atStartOfDay());
+        assertThat(f.kwh()).hasSize(24);
+    }
+}
@@ -0,0 +1,159 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.dto.SimilarCafeResponse;
+import com.energyoptimiser.cafe.exception.CafeNotFoundException;
+import com.energyoptimiser.cafe.model.CafeProfile;
+import com.energyoptimiser.cafe.model.EnergyReading;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
+import com.energyoptimiser.cafe.repository.EnergyReadingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("embedded")
+class LoadProfileIndexLoaderTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 1, 6, 0, 0);
+
+    @Autowired
+    private CafeProfileRepository cafeProfileRepository;
+
+    @Autowired
+    private EnergyReadingRepository energyReadingRepository;
+
+    @Autowired
+    private LoadProfileIndex loadProfileIndex;
+
+    @Autowired
+    private LoadProfileIndexLoader loader;
+
+    @Autowired
+    private SimilarityService similarityService;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** A week of 1 kWh hours with {@code peak} kWh at the given day offset and hour, times {@code scale}. */
+    private long cafeInDatabase(String name, int peakDay, int peakHour, double scale) {
+        CafeProfile cafe = cafeProfileRepository.save(CafeProfile.builder().name(name).location("Loader").build());
+        List<EnergyReading> readings = new ArrayList<>();
+        for (int i = 0; i < 7 * 24; i++) {
+            LocalDateTime t = MONDAY.plusHours(i);
+            double kwh = i == peakDay * 24 + peakHour ? 10.0 : 1.0;
+            readings.add(EnergyReading.builder().cafe(cafe).timestamp(t).kwh(kwh * scale).build());
+        }
+        energyReadingRepository.saveAll(readings);
+        return cafe.getId();
+    }
+
+    @Test
+    void load_indexesCafesThatOnlyExistInTheDatabase() {
+        // written straight to the database, as if by an earlier run of the application
+        long monday = cafeInDatabase("Monday mornings", 0, 8, 1.0);
+        long bigMonday = cafeInDatabase("Big Monday mornings", 0, 8, 20.0);
+        long sunday = cafeInDatabase("Sunday mornings", 6, 8, 1.0);
+        assertThat(loadProfileIndex.contains(monday)).isFalse();
+        assertThat(loadProfileIndex.contains(sunday)).isFalse();
+
+        assertThat(loader.load()).isGreaterThanOrEqualTo(3);
+
+        List<SimilarCafeResponse> similar = similarityService.findSimilar(monday, 2, "cosine", "weekly");
+        assertThat(similar).extracting(SimilarCafeResponse::cafeId).containsExactly(bigMonday, sunday);
+        assertThat(similar.getFirst().distance()).isCloseTo(0.0, within(1e-4));
+
+        // the SQL weekday mapping agrees with the profile built from the readings themselves
+        LoadProfileIndex exact = new LoadProfileIndex();
+        for (long id : List.of(monday, bigMonday, sunday)) {
+            AnalyticsService.AnalyticsData data = analyticsService.computeAnalytics(id);
+            double[] hourly = new double[24];
+            data.hourlyUsage().forEach((h, kwh) -> hourly[h] = kwh);
+            exact.put(id, hourly, data.weekdayHourLoad());
+        }
+        LoadProfileIndex.Neighbours expected = exact.nearest(monday, 2,
+                LoadProfileIndex.Metric.COSINE, LoadProfileIndex.Profile.WEEKLY);
+        assertThat(expected.cafeIds()).containsExactly(bigMonday, sunday);
+        assertThat(similar.get(1).distance()).isCloseTo(expected.distances()[1], within(1e-4));
+    }
+
+    @Test
+    void warmUp_runsAfterStartup_andMarksTheIndexReady() throws InterruptedException {
+        for (int i = 0; i < 100 && !loader.isReady(); i++) {
+            Thread.sleep(50);
+        }
+
+        assertThat(loader.isReady()).isTrue();
+    }
+
+    @Test
+    void findSimilar_indexesAnUnindexedCafeOnDemand() {
+        loader.load();
+        long monday = cafeInDatabase("Late Monday mornings", 0, 8, 1.0);
+        CafeProfile empty = cafeProfileRepository.save(CafeProfile.builder().name("No readings").location("Loader").build());
+        assertThat(loadProfileIndex.contains(monday)).isFalse();
+
+        assertThat(similarityService.findSimilar(monday, 1, "cosine", "weekly")).hasSize(1);
+        assertThat(loadProfileIndex.contains(monday)).isTrue();
+        assertThat(similarityService.findSimilar(empty.getId(), 1, "cosine", "weekly")).isEmpty();
+        assertThrows(CafeNotFoundException.class,
+                () -> similarityService.findSimilar(Long.MAX_VALUE, 1, "cosine", "weekly"));
+    }
+
+    @Test
+    void findSimilar_reloadsACafeUpdatedThroughAnotherInstance() {
+        loader.load();
+        // two-hour evening peaks, so neither café ties with the single-peak ones above
+        long monday = cafeInDatabase("Monday evenings", 0, 20, 1.0);
+        long sunday = cafeInDatabase("Sunday evenings", 6, 20, 1.0);
+        addReading(monday, MONDAY.plusWeeks(1).plusHours(21), 9.0);
+        addReading(sunday, MONDAY.plusWeeks(1).plusDays(6).plusHours(21), 9.0);
+        transactionTemplate.executeWithoutResult(tx -> dataVersionService.bump(List.of(monday, sunday)));
+        assertThat(loader.catchUp()).isGreaterThanOrEqualTo(2);
+        long indexed = loadProfileIndex.version(monday);
+        double before = distance(similarityService.findSimilar(monday, 100, "cosine", "weekly"), sunday);
+
+        // another instance adds Sunday evening peaks to the Monday café and bumps its version
+        addReading(monday, MONDAY.plusWeeks(1).plusDays(6).plusHours(20), 9.0);
+        addReading(monday, MONDAY.plusWeeks(1).plusDays(6).plusHours(21), 9.0);
+        transactionTemplate.executeWithoutResult(tx -> dataVersionService.bump(List.of(monday)));
+
+        double after = distance(similarityService.findSimilar(monday, 100, "cosine", "weekly"), sunday);
+
+        assertThat(loadProfileIndex.version(monday)).isGreaterThan(indexed);
+        assertThat(after).isLessThan(before);
+    }
+
+    private void addReading(long cafeId, LocalDateTime timestamp, double kwh) {
+        CafeProfile cafe = cafeProfileRepository.findById(cafeId).orElseThrow();
+        energyReadingRepository.save(EnergyReading.builder().cafe(cafe).timestamp(timestamp).kwh(kwh).build());
+    }
+
+    private static double distance(List<SimilarCafeResponse> similar, long cafeId) {
+        return similar.stream().filter(s -> s.cafeId() == cafeId).findFirst().orElseThrow().distance();
+    }
+}
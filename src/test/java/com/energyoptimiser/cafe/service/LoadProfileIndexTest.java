@@ -0,0 +1,111 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.model.EnergyReading;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadProfileIndexTest {
+
+    private LoadProfileIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new LoadProfileIndex();
+    }
+
+    private static double[] profile(int peakHour, double scale) {
+        double[] hourly = new double[24];
+        for (int h = 0; h < 24; h++) {
+            hourly[h] = scale * (h == peakHour ? 10.0 : 1.0);
+        }
+        return hourly;
+    }
+
+    @Test
+    void nearest_ranksBySimilarShapeRegardlessOfSize() {
+        index.put(1L, profile(8, 1.0), null);
+        index.put(2L, profile(8, 50.0), null);   // same shape, much bigger café
+        index.put(3L, profile(9, 1.0), null);
+        index.put(4L, profile(20, 1.0), null);
+
+        for (LoadProfileIndex.Metric metric : LoadProfileIndex.Metric.values()) {
+            var result = index.nearest(1L, 2, metric, LoadProfileIndex.Profile.DAILY);
+
+            assertThat(result.cafeIds()).hasSize(2);
+            assertThat(result.cafeIds()[0]).isEqualTo(2L);
+            assertThat(result.distances()[0]).isLessThan(1e-6);
+            assertThat(result.distances()[1]).isGreaterThan(result.distances()[0]);
+        }
+    }
+
+    @Test
+    void accumulate_updatesProfilesIncrementally() {
+        LocalDateTime monday = LocalDateTime.of(2025, 1, 6, 8, 0);
+        LocalDateTime saturday = LocalDateTime.of(2025, 1, 4, 8, 0);
+        index.accumulate(1L, monday, 5.0);
+        index.accumulate(2L, monday, 3.0);
+        index.accumulate(3L, saturday, 3.0);
+
+        // same hour of day, so identical daily shapes
+        var daily = index.nearest(1L, 2, LoadProfileIndex.Metric.COSINE, LoadProfileIndex.Profile.DAILY);
+        assertThat(daily.distances()).containsExactly(0.0, 0.0);
+
+        // but only café 2 matches on weekday as well
+        var weekly = index.nearest(1L, 2, LoadProfileIndex.Metric.COSINE, LoadProfileIndex.Profile.WEEKLY);
+        assertThat(weekly.cafeIds()[0]).isEqualTo(2L);
+        assertThat(weekly.distances()[1]).isEqualTo(1.0);
+    }
+
+    @Test
+    void nearest_unknownCafeOrSingleEntry_returnsEmpty() {
+        assertThat(index.nearest(1L, 3, LoadProfileIndex.Metric.COSINE, LoadProfileIndex.Profile.DAILY).cafeIds()).isEmpty();
+
+        index.put(1L, profile(8, 1.0), null);
+        assertThat(index.nearest(1L, 3, LoadProfileIndex.Metric.COSINE, LoadProfileIndex.Profile.DAILY).cafeIds()).isEmpty();
+    }
+
+    @Test
+    void nearest_growsBeyondInitialCapacity() {
+        for (long id = 1; id <= 1000; id++) {
+            index.put(id, profile((int) (id % 24), 1.0 + id), null);
+        }
+
+        var result = index.nearest(1L, 5, LoadProfileIndex.Metric.EUCLIDEAN, LoadProfileIndex.Profile.DAILY);
+
+        assertThat(index.size()).isEqualTo(1000);
+        assertThat(result.cafeIds()).hasSize(5);
+        // every café with the same peak hour (id % 24 == 1) is at distance 0
+        assertThat(List.of(25L, 49L, 73L, 97L, 121L)).contains(result.cafeIds()[0]);
+        assertThat(result.distances()[4]).isLessThan(1e-6);
+    }
+
+    private static EnergyReading reading(LocalDateTime timestamp, double kwh) {
+        return EnergyReading.builder().timestamp(timestamp).kwh(kwh).build();
+    }
+
+    @Test
+    void versions_onlyMoveForward_andStayBehindWhenAnUploadIsMissed() {
+        LocalDateTime monday = LocalDateTime.of(2025, 1, 6, 8, 0);
+        assertThat(index.version(1L)).isEqualTo(LoadProfileIndex.NO_VERSION);
+
+        index.accumulate(1L, 1, List.of(reading(monday, 1.0)));
+        assertThat(index.version(1L)).isEqualTo(1);
+
+        // a reload read at version 3 replaces the row; an older read does not
+        assertThat(index.put(1L, new double[LoadProfileIndex.WEEK_HOURS], 3)).isTrue();
+        assertThat(index.put(1L, new double[LoadProfileIndex.WEEK_HOURS], 2)).isFalse();
+        // version 3's readings are in the reloaded totals already
+        index.accumulate(1L, 3, List.of(reading(monday, 1.0)));
+        index.accumulate(1L, 4, List.of(reading(monday, 1.0)));
+        assertThat(index.version(1L)).isEqualTo(4);
+
+        // version 5 was ingested elsewhere
+        index.accumulate(1L, 6, List.of(reading(monday, 1.0)));
+        assertThat(index.version(1L)).isEqualTo(4);
+    }
+}
@@ -0,0 +1,215 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.LoadShiftProperties;
+import com.energyoptimiser.cafe.config.TariffProperties;
+import com.energyoptimiser.cafe.dto.LoadShiftRequest;
+import com.energyoptimiser.cafe.dto.LoadShiftResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntToDoubleFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LoadShiftServiceTest {
+
+    private static final List<String> DAYS = List.of("MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN");
+
+    private final AnalyticsService analyticsService = Mockito.mock(AnalyticsService.class);
+
+    /** Same kWh for an hour of day on every weekday. */
+    private void givenWeek(IntToDoubleFunction kwhAtHour) {
+        givenDays(7, kwhAtHour);
+    }
+
+    /** Same kWh for an hour of day on the first {@code days} weekdays, no readings on the rest. */
+    private void givenDays(int days, IntToDoubleFunction kwhAtHour) {
+        LoadCube cube = new LoadCube(DAYS, 24);
+        for (int d = 0; d < days; d++) {
+            for (int h = 0; h < 24; h++) {
+                cube.add(d, h, kwhAtHour.applyAsDouble(h));
+            }
+        }
+        Mockito.when(analyticsService.computeAnalytics(1L)).thenReturn(new AnalyticsService.AnalyticsData(
+                1L, Map.of(), Map.of(), List.of(), 0, 0, cube, null, null));
+    }
+
+    private LoadShiftService service(TariffProperties tariffs) {
+        return new LoadShiftService(new LoadShiftProperties(), tariffs, analyticsService, new TariffService(tariffs));
+    }
+
+    private static TariffProperties touTariff() {
+        TariffProperties props = new TariffProperties();
+        TariffProperties.Definition tou = new TariffProperties.Definition();
+        List<Double> rates = new ArrayList<>(Collections.nCopies(24, 0.20));
+        for (int h = 0; h < 7; h++) rates.set(h, 0.10);
+        for (int h = 16; h < 20; h++) rates.set(h, 0.40);
+        tou.setRates(rates);
+        props.getDefinitions().put("tou", tou);
+        props.setDefaultTariff("tou");
+        return props;
+    }
+
+    @Test
+    void peak_movesApplianceOutOfTheBusiestHours() {
+        // 3 kWh lunchtime base plus a 2 kW dishwasher at 12-13, quiet 1 kWh nights
+        givenWeek(h -> h >= 12 && h < 14 ? 5.0 : h < 6 ? 1.0 : 2.0);
+        LoadShiftRequest request = new LoadShiftRequest("peak", 2, List.of(
+                new LoadShiftRequest.Appliance("dishwasher", 4.0, 2, 12, List.of())));
+
+        LoadShiftResponse response = service(new TariffProperties()).simulate(1L, request);
+
+        assertThat(response.baselinePeakKwh()).isCloseTo(5.0, within(1e-9));
+        assertThat(response.baselineWeeklyCost()).isNull();
+        LoadShiftResponse.Schedule best = response.schedules().getFirst();
+        assertThat(best.peakKwh()).isCloseTo(3.0, within(1e-9));
+        assertThat(best.peakReductionKwh()).isCloseTo(2.0, within(1e-9));
+        LoadShiftResponse.Placement placement = best.placements().getFirst();
+        assertThat(placement.currentStartHour()).isEqualTo(12);
+        assertThat(placement.startHour()).isBetween(0, 4);
+        assertThat(placement.endHour()).isEqualTo(placement.startHour() + 2);
+        // every restart converges on the same schedule, so there is no second one to report
+        assertThat(response.schedules()).hasSize(1);
+    }
+
+    @Test
+    void peak_ignoresWeekdaysWithoutReadings() {
+        // the café is closed on Sundays, so there is nothing recorded to take the dishwasher out of
+        givenDays(6, h -> h >= 12 && h < 14 ? 5.0 : h < 6 ? 1.0 : 2.0);
+        LoadShiftRequest request = new LoadShiftRequest("peak", 2, List.of(
+                new LoadShiftRequest.Appliance("dishwasher", 4.0, 2, 12, List.of())));
+
+        LoadShiftResponse response = service(new TariffProperties()).simulate(1L, request);
+
+        assertThat(response.baselinePeakKwh()).isCloseTo(5.0, within(1e-9));
+        LoadShiftResponse.Schedule best = response.schedules().getFirst();
+        assertThat(best.peakKwh()).isCloseTo(3.0, within(1e-9));
+        assertThat(best.placements().getFirst().startHour()).isBetween(0, 4);
+    }
+
+    @Test
+    void cost_movesApplianceToCheapHoursInsideItsWindow() {
+        givenWeek(h -> h >= 17 && h < 19 ? 4.0 : 2.0);
+        LoadShiftRequest request = new LoadShiftRequest("cost", 1, List.of(
+                new LoadShiftRequest.Appliance("ice machine", 4.0, 2, 17,
+                        List.of(new LoadShiftRequest.Window(5, 10), new LoadShiftRequest.Window(20, 24)))));
+
+        LoadShiftResponse response = service(touTariff()).simulate(1L, request);
+
+        assertThat(response.tariff()).isEqualTo("tou");
+        LoadShiftResponse.Schedule best = response.schedules().getFirst();
+        // 5-6 is the only two-hour slot in the windows that is all at the 0.10 rate
+        assertThat(best.placements().getFirst().startHour()).isEqualTo(5);
+        // 4 kWh a day, 0.40 -> 0.10, seven days
+        assertThat(best.weeklySavings()).isCloseTo(4.0 * 0.30 * 7, within(1e-9));
+    }
+
+    @Test
+    void simulate_rejectsAppliancesThatExceedTheRecordedLoad() {
+        givenWeek(h -> h == 12 ? 3.0 : 1.0);
+        LoadShiftService service = service(new TariffProperties());
+
+        // 2 kW at noon fits inside the 3 kWh recorded there, but not at 11:00
+        assertThatThrownBy(() -> service.simulate(1L, new LoadShiftRequest("peak", null, List.of(
+                new LoadShiftRequest.Appliance("oven", 4.0, 2, 11, null)))))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Appliance 'oven'")
+                .hasMessageContaining("hour 11 on MON (1.00 kWh)");
+        // each fits at noon on its own, together they do not
+        assertThatThrownBy(() -> service.simulate(1L, new LoadShiftRequest("peak", null, List.of(
+                new LoadShiftRequest.Appliance("oven", 2.0, 1, 12, null),
+                new LoadShiftRequest.Appliance("kettle", 2.0, 1, 12, null)))))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Appliance 'kettle'");
+        // an appliance may account for all of an hour's load
+        assertThat(service.simulate(1L, new LoadShiftRequest("peak", null, List.of(
+                new LoadShiftRequest.Appliance("oven", 3.0, 1, 12, null)))).schedules()).isNotEmpty();
+    }
+
+    @Test
+    void search_manyAppliances_isDeterministicAcrossParallelism() {
+        SplittableRandom random = new SplittableRandom(7);
+        double[] base = new double[LoadShiftSimulator.WEEK_HOURS];
+        for (int h = 0; h < base.length; h++) base[h] = 5 + random.nextDouble() * 10;
+        int n = 40;
+        double[] kw = new double[n];
+        int[] duration = new int[n];
+        int[] current = new int[n];
+        int[][] starts = new int[n][];
+        for (int a = 0; a < n; a++) {
+            duration[a] = 1 + random.nextInt(4);
+            kw[a] = 0.5 + random.nextDouble() * 3;
+            int from = random.nextInt(12);
+            int to = Math.min(24, from + duration[a] + 4 + random.nextInt(10));
+            starts[a] = new int[to - from - duration[a] + 1];
+            for (int i = 0; i < starts[a].length; i++) starts[a][i] = from + i;
+            current[a] = from;
+        }
+        boolean[] days = new boolean[7];
+        Arrays.fill(days, true);
+        LoadShiftSimulator.Problem problem = new LoadShiftSimulator.Problem(base, days, null, kw, duration, starts,
+                current, LoadShiftSimulator.Objective.PEAK);
+
+        List<LoadShiftSimulator.Schedule> serial;
+        List<LoadShiftSimulator.Schedule> parallel;
+        try (LoadShiftSimulator one = new LoadShiftSimulator(1); LoadShiftSimulator four = new LoadShiftSimulator(4)) {
+            serial = one.search(problem, 32, 20, 3);
+            parallel = four.search(problem, 32, 20, 3);
+        }
+
+        assertThat(parallel).hasSize(3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(parallel.get(i).starts()).isEqualTo(serial.get(i).starts());
+            assertThat(parallel.get(i).peak()).isEqualTo(serial.get(i).peak());
+        }
+        // restart 0 starts from today's (feasible) schedule and only ever improves on it
+        double[] today = base.clone();
+        for (int a = 0; a < n; a++) {
+            for (int d = 0; d < 7; d++) {
+                for (int h = current[a]; h < current[a] + duration[a]; h++) today[d * 24 + h] += kw[a];
+            }
+        }
+        assertThat(parallel.getFirst().peak())
+                .isLessThanOrEqualTo(LoadShiftSimulator.evaluate(today, null, current).peak());
+    }
+
+    @Test
+    void simulate_rejectsCostWithoutTariffAndBadWindows() {
+        givenWeek(h -> 1.0);
+        LoadShiftService service = service(new TariffProperties());
+        List<LoadShiftRequest.Appliance> ok = List.of(new LoadShiftRequest.Appliance("oven", 2.0, 1, 8, null));
+
+        assertThatThrownBy(() -> service.simulate(1L, new LoadShiftRequest("cost", null, ok)))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("No tariff");
+        assertThatThrownBy(() -> service.simulate(1L, new LoadShiftRequest("peak", null, List.of(
+                new LoadShiftRequest.Appliance("oven", 2.0, 3, 8, List.of(new LoadShiftRequest.Window(10, 12)))))))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("fits none of its windows");
+        assertThatThrownBy(() -> service.simulate(1L, new LoadShiftRequest("fastest", null, ok)))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void destroy_shutsTheSearchPoolDown() {
+        givenWeek(h -> 5.0);
+        LoadShiftService service = service(new TariffProperties());
+        LoadShiftRequest request = new LoadShiftRequest("peak", 1, List.of(
+                new LoadShiftRequest.Appliance("dishwasher", 2.0, 2, 12, List.of())));
+        assertThat(service.simulate(1L, request).schedules()).isNotEmpty();
+
+        service.destroy();
+
+        assertThatThrownBy(() -> service.simulate(1L, request)).isInstanceOf(RejectedExecutionException.class);
+    }
+}
@@ -1,8 +1,11 @@
 package com.energyoptimiser.cafe.service;
 
+import com.energyoptimiser.cafe.config.ForecastProperties;
+import com.energyoptimiser.cafe.config.TariffProperties;
 import com.energyoptimiser.cafe.dto.InsightsResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -12,11 +15,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 class OptimizationServiceTest {
 
+    private final AnalyticsService analyticsService = Mockito.mock(AnalyticsService.class);
     private OptimizationService optimizationService;
 
     @BeforeEach
     void setUp() {
-        optimizationService = new OptimizationService();
+        optimizationService = new OptimizationService(new TariffService(new TariffProperties()),
+                new ForecastService(new ForecastProperties(), analyticsService, Mockito.mock(DataVersionService.class)));
     }
 
     private AnalyticsService.AnalyticsData analytics(Map<Integer, Double> hourly,
@@ -24,7 +29,7 @@ class OptimizationServiceTest {
                                                      List<Integer> peaks) {
         double avg = daily.values().stream().mapToDouble(Double::doubleValue).average().orElse(0);
         double max = daily.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
-        return new AnalyticsService.AnalyticsData(1L, hourly, daily, peaks, avg, max);
+        return new AnalyticsService.AnalyticsData(1L, hourly, daily, peaks, avg, max, null, null, null);
     }
 
     @Test
@@ -45,8 +50,8 @@ class OptimizationServiceTest {
         var recs = optimizationService.generateRecommendations(analytics(hourly, daily, peaks));
 
         assertThat(recs.stream().anyMatch(s -> s.contains("peak hour"))).isTrue();
-        assertThat(recs.stream().anyMatch(s -> s.contains("Hour 17"))).isTrue();
-        assertThat(recs.stream().anyMatch(s -> s.contains("Hour 9"))).isTrue();
+        assertThat(recs).filteredOn(s -> s.contains("dishwasher")).containsExactly(
+                "Schedule dishwasher/ice machine defrost outside hour(s) [9, 17] if possible.");
     }
 
     @Test
@@ -81,4 +86,76 @@ class OptimizationServiceTest {
         assertThat(resp.maxDailyUsage()).isEqualTo(12.0);
         assertThat(resp.recommendations()).isNotEmpty();
     }
+
+    @Test
+    void generateRecommendations_usesWeekdayHourCube() {
+        LoadCube cube = new LoadCube(List.of("MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY",
+                "SATURDAY", "SUNDAY"), 24);
+        for (int row = 0; row < 7; row++) {
+            for (int h = 0; h < 24; h++) {
+                // Saturday 11:00 brunch peak, weekends otherwise twice as busy
+                double kwh = row == 5 && h == 11 ? 20.0 : (row >= 5 ? 2.0 : 1.0);
+                cube.add(row, h, kwh);
+            }
+        }
+        var base = analytics(Map.of(11, 5.0), Map.of(LocalDate.of(2025, 1, 4), 10.0), List.of(11));
+        var data = new AnalyticsService.AnalyticsData(1L, base.hourlyUsage(), base.dailyUsage(), base.peakHours(),
+                base.averageDailyUsage(), base.maxDailyUsage(), cube, null, null);
+
+        var recs = optimizationService.generateRecommendations(data);
+        InsightsResponse resp = optimizationService.generateInsights(data);
+
+        assertThat(recs.stream().anyMatch(s -> s.contains("SATURDAY at hour 11"))).isTrue();
+        // peaks come from the cube, not the flat 24-hour profile
+        assertThat(recs).contains("Consider shifting non-essential loads away from peak slot(s): SATURDAY 11:00");
+        assertThat(recs).contains("Schedule dishwasher/ice machine defrost outside hour(s) [11] if possible.");
+        assertThat(recs.stream().anyMatch(s -> s.startsWith("Weekend days use"))).isTrue();
+        assertThat(resp.weekdayHourLoad().rows()).hasSize(7);
+        assertThat(resp.weekdayHourLoad().max()[5][11]).isEqualTo(20.0);
+        assertThat(resp.monthHourLoad()).isNull();
+    }
+
+    @Test
+    void generateInsights_forecastsNextDayPeaks() {
+        // three weeks with a 12:00 peak and a quiet 03:00-05:00
+        int days = 21;
+        double[] kwh = new double[days * 24];
+        for (int i = 0; i < kwh.length; i++) {
+            int h = i % 24;
+            kwh[i] = h == 12 ? 6.0 : (h >= 3 && h < 5 ? 0.2 : 1.0);
+        }
+        var series = new AnalyticsService.HourlySeries(LocalDate.of(2025, 1, 1), kwh);
+        var base = analytics(Map.of(12, 6.0 * days), Map.of(LocalDate.of(2025, 1, 1), 30.0), List.of(12));
+        var data = new AnalyticsService.AnalyticsData(1L, base.hourlyUsage(), base.dailyUsage(), base.peakHours(),
+                base.averageDailyUsage(), base.maxDailyUsage(), null, null, series);
+
+        InsightsResponse resp = optimizationService.generateInsights(data);
+
+        assertThat(resp.nextDayForecast()).isNotNull();
+        assertThat(resp.nextDayForecast().start()).isEqualTo(LocalDate.of(2025, 1, 22).atStartOfDay());
+        assertThat(resp.nextDayForecast().peakAt().getHour()).isEqualTo(12);
+        // the model is rebuilt from the series the analytics already hold
+        Mockito.verifyNoInteractions(analyticsService);
+        assertThat(resp.recommendations().stream().anyMatch(s -> s.contains("load peaks at hour 12"))).isTrue();
+        assertThat(resp.recommendations().stream().anyMatch(s -> s.contains("is hours 3-5"))).isTrue();
+        // the forecast peak and the peak hours share one hint
+        assertThat(resp.recommendations()).filteredOn(s -> s.contains("defrost")).containsExactly(
+                "Schedule dishwasher/ice machine defrost outside hour(s) [11, 12, 13] if possible.");
+    }
+
+    @Test
+    void generateCompactInsights_usesDenseArrays() {
+        var hourly = Map.of(8, 2.0, 17, 5.0);
+        var daily = Map.of(LocalDate.of(2025, 1, 1), 10.0,
+                           LocalDate.of(2025, 1, 4), 12.0);
+
+        var resp = optimizationService.generateCompactInsights(analytics(hourly, daily, List.of(17)));
+
+        assertThat(resp.hourlyUsage()).hasSize(24);
+        assertThat(resp.hourlyUsage()[17]).isEqualTo(5.0);
+        assertThat(resp.dailyStart()).isEqualTo(LocalDate.of(2025, 1, 1));
+        assertThat(resp.dailyStepDays()).isEqualTo(1);
+        assertThat(resp.dailyUsage()).containsExactly(10.0, 0.0, 0.0, 12.0);
+        assertThat(resp.recommendations()).isNotEmpty();
+    }
 }
@@ -0,0 +1,64 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.IngestionProperties;
+import com.energyoptimiser.cafe.exception.UploadReportNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("embedded")
+class RejectedRowStoreTest {
+
+    @Autowired
+    private RejectedRowStore store;
+
+    @Autowired
+    private IngestionProperties properties;
+
+    private final int retainedReports = new IngestionProperties().getRetainedReports();
+
+    @AfterEach
+    void tearDown() {
+        properties.setRetainedReports(retainedReports);
+    }
+
+    private static RejectedRowReport report(String uploadId) {
+        RejectedRowReport report = new RejectedRowReport(uploadId, uploadId + ".csv", 2);
+        report.reject(3, "Invalid kWh value: \"x\"", "Cafe,Loc,2025-01-01T08:00:00,x");
+        report.reject(5, "Invalid CSV row", "Cafe,Loc");
+        report.reject(8, "Invalid CSV row", "Cafe");
+        return report;
+    }
+
+    @Test
+    void get_returnsTheSavedReport_asTheUploadRecordedIt() {
+        RejectedRowReport saved = report("00000000-0000-0000-0000-00000000000a");
+        store.save(saved);
+
+        RejectedRowReport loaded = store.get(saved.uploadId());
+
+        assertThat(loaded.fileName()).isEqualTo(saved.fileName());
+        assertThat(loaded.rejectedCount()).isEqualTo(3);
+        assertThat(loaded.rows()).containsExactlyElementsOf(saved.rows());
+        assertThat(loaded.toCsv()).isEqualTo(saved.toCsv());
+    }
+
+    @Test
+    void save_evictsTheOldestReports_beyondTheRetainedCount() {
+        properties.setRetainedReports(2);
+
+        store.save(report("00000000-0000-0000-0000-00000000000b"));
+        store.save(report("00000000-0000-0000-0000-00000000000c"));
+        store.save(report("00000000-0000-0000-0000-00000000000d"));
+
+        assertThrows(UploadReportNotFoundException.class, () -> store.get("00000000-0000-0000-0000-00000000000b"));
+        assertThat(store.get("00000000-0000-0000-0000-00000000000c").rejectedCount()).isEqualTo(3);
+        assertThat(store.get("00000000-0000-0000-0000-00000000000d").rejectedCount()).isEqualTo(3);
+    }
+}
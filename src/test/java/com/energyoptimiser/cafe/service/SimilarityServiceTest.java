@@ -0,0 +1,51 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.dto.CafeDataVersion;
+import com.energyoptimiser.cafe.exception.ServiceNotReadyException;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SimilarityServiceTest {
+
+    private final LoadProfileIndexLoader loader = Mockito.mock(LoadProfileIndexLoader.class);
+    private final DataVersionService dataVersionService = Mockito.mock(DataVersionService.class);
+    private final CafeProfileRepository cafeRepo = Mockito.mock(CafeProfileRepository.class);
+    private final LoadProfileIndex index = new LoadProfileIndex();
+    private final SimilarityService service = new SimilarityService(index, loader, dataVersionService, cafeRepo);
+
+    @Test
+    void findSimilar_answersNotReadyWhileTheIndexWarmsUp() {
+        when(loader.isReady()).thenReturn(false);
+
+        assertThrows(ServiceNotReadyException.class, () -> service.findSimilar(1L, 5, "cosine", "daily"));
+
+        // a failed warm-up is retried rather than leaving the endpoint down
+        verify(loader).warmUp();
+        verifyNoInteractions(dataVersionService, cafeRepo);
+    }
+
+    @Test
+    void findSimilar_reloadsTheCafe_onlyWhenItsProfileIsBehindItsDataVersion() {
+        when(loader.isReady()).thenReturn(true);
+        index.put(1L, new double[LoadProfileIndex.WEEK_HOURS], 3);
+        when(dataVersionService.current(1L)).thenReturn(new CafeDataVersion(1L, 3, null));
+
+        service.findSimilar(1L, 5, "cosine", "daily");
+        verify(loader, never()).load(any(Long.class));
+
+        // readings uploaded through another instance
+        when(dataVersionService.current(1L)).thenReturn(new CafeDataVersion(1L, 4, null));
+        when(loader.load(1L)).thenReturn(true);
+        service.findSimilar(1L, 5, "cosine", "daily");
+        verify(loader).load(1L);
+        verify(loader, Mockito.times(2)).refresh();
+    }
+}
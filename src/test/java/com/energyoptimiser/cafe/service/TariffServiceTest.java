@@ -0,0 +1,164 @@
+package com.energyoptimiser.cafe.service;
+
+import com.energyoptimiser.cafe.config.TariffProperties;
+import com.energyoptimiser.cafe.dto.CostSummaryResponse;
+import com.energyoptimiser.cafe.exception.BadRequestException;
+import com.energyoptimiser.cafe.model.CafeProfile;
+import com.energyoptimiser.cafe.model.EnergyReading;
+import com.energyoptimiser.cafe.repository.CafeProfileRepository;
+import com.energyoptimiser.cafe.repository.EnergyReadingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+class TariffServiceTest {
+
+    private TariffProperties properties;
+    private AnalyticsService.AnalyticsData analytics;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TariffProperties();
+        properties.setShiftableFraction(0.5);
+
+        TariffProperties.Definition flat = new TariffProperties.Definition();
+        flat.setRates(Collections.nCopies(24, 0.10));
+        flat.setDemandCharge(2.0);
+        properties.getDefinitions().put("flat", flat);
+
+        TariffProperties.Definition tou = new TariffProperties.Definition();
+        Double[] rates = Collections.nCopies(24, 0.10).toArray(new Double[0]);
+        rates[12] = 0.40;
+        tou.setRates(List.of(rates));
+        tou.getDayRates().put(DayOfWeek.SUNDAY, Collections.nCopies(24, 0.05));
+        properties.getDefinitions().put("tou", tou);
+        properties.setDefaultTariff("flat");
+        properties.getCafeAssignments().put(2L, "tou");
+
+        // Saturday 2025-01-25 and Sunday 2025-01-26, plus Monday 2025-02-03 in the next month
+        CafeProfile cafe = CafeProfile.builder().id(1L).name("Cafe A").location("Loc").build();
+        EnergyReadingRepository repo = Mockito.mock(EnergyReadingRepository.class);
+        when(repo.findByCafe_Id(anyLong())).thenReturn(List.of(
+                EnergyReading.builder().cafe(cafe).timestamp(LocalDateTime.of(2025, 1, 25, 12, 0)).kwh(4).build(),
+                EnergyReading.builder().cafe(cafe).timestamp(LocalDateTime.of(2025, 1, 25, 8, 0)).kwh(1).build(),
+                EnergyReading.builder().cafe(cafe).timestamp(LocalDateTime.of(2025, 1, 26, 12, 0)).kwh(6).build(),
+                EnergyReading.builder().cafe(cafe).timestamp(LocalDateTime.of(2025, 2, 3, 12, 0)).kwh(3).build()
+        ));
+        analytics = new AnalyticsService(repo, Mockito.mock(CafeProfileRepository.class)).computeAnalytics(1L);
+    }
+
+    @Test
+    void costForCafe_pricesEveryHourAndDay_withMonthlyDemandCharge() {
+        CostSummaryResponse cost = new TariffService(properties).costForCafe(analytics);
+
+        assertThat(cost.tariff()).isEqualTo("flat");
+        assertThat(cost.energyCost()).isCloseTo(1.4, within(1e-9));
+        assertThat(cost.costByHour()[12]).isCloseTo(1.3, within(1e-9));
+        assertThat(cost.costByDay()).hasSize(3);
+        assertThat(cost.costByDay().get(LocalDate.of(2025, 1, 25))).isCloseTo(0.5, within(1e-9));
+        // monthly peaks: 6 kWh in January, 3 kWh in February
+        assertThat(cost.demandCharges()).isCloseTo(18.0, within(1e-9));
+        assertThat(cost.totalCost()).isCloseTo(19.4, within(1e-9));
+        // flat rate: nothing to gain from shifting
+        assertThat(cost.peakShiftSavings()).isZero();
+    }
+
+    @Test
+    void costForCafe_chargesDemandOverTheSameRangeAsEnergy() {
+        // a reading older than the dense series window still has its month's peak charged
+        CafeProfile cafe = CafeProfile.builder().id(1L).name("Cafe A").location("Loc").build();
+        EnergyReadingRepository repo = Mockito.mock(EnergyReadingRepository.class);
+        when(repo.findByCafe_Id(anyLong())).thenReturn(List.of(
+                EnergyReading.builder().cafe(cafe).timestamp(LocalDateTime.of(2014, 3, 4, 12, 0)).kwh(5).build(),
+                EnergyReading.builder().cafe(cafe).timestamp(LocalDateTime.of(2025, 1, 25, 12, 0)).kwh(4).build()
+        ));
+        AnalyticsService.AnalyticsData data = new AnalyticsService(repo, Mockito.mock(CafeProfileRepository.class)).computeAnalytics(1L);
+        assertThat(data.hourlySeries().firstDay()).isAfter(LocalDate.of(2014, 3, 4));
+
+        CostSummaryResponse cost = new TariffService(properties).costForCafe(data);
+
+        assertThat(cost.energyCost()).isCloseTo(0.9, within(1e-9));
+        assertThat(cost.demandCharges()).isCloseTo(2.0 * (5 + 4), within(1e-9));
+        assertThat(cost.costByDay()).containsOnlyKeys(LocalDate.of(2014, 3, 4), LocalDate.of(2025, 1, 25));
+    }
+
+    @Test
+    void compareTariffs_appliesWeekdayOverridesAndEstimatesShiftSavings() {
+        List<CostSummaryResponse> costs = new TariffService(properties).compareTariffs(analytics, List.of("tou"));
+
+        CostSummaryResponse tou = costs.getFirst();
+        // Sat: 4*0.40 + 1*0.10, Sun: 6*0.05, Mon: 3*0.40
+        assertThat(tou.energyCost()).isCloseTo(3.2, within(1e-9));
+        assertThat(tou.costByDay()).isNull();
+        assertThat(analytics.peakHours()).contains(12);
+        // half of the weekday/Saturday 12:00 load moved to a 0.10 hour; Sunday is already flat
+        assertThat(tou.peakShiftSavings()).isCloseTo(0.5 * (4 + 3) * 0.30, within(1e-9));
+    }
+
+    @Test
+    void compareTariffs_defaultsToAllTariffs_andRejectsUnknownNames() {
+        TariffService service = new TariffService(properties);
+
+        assertThat(service.compareTariffs(analytics, List.of())).extracting(CostSummaryResponse::tariff)
+                .containsExactly("flat", "tou");
+        assertThrows(BadRequestException.class, () -> service.compareTariffs(analytics, List.of("nope")));
+    }
+
+    @Test
+    void tariffFor_usesAssignmentThenDefault() {
+        TariffService service = new TariffService(properties);
+
+        assertThat(service.tariffFor(2L)).map(Tariff::name).contains("tou");
+        assertThat(service.tariffFor(3L)).map(Tariff::name).contains("flat");
+
+        properties.setDefaultTariff(null);
+        assertThat(new TariffService(properties).tariffFor(3L)).isEmpty();
+    }
+
+    @Test
+    void constructor_rejectsIncompleteRates() {
+        TariffProperties.Definition broken = new TariffProperties.Definition();
+        broken.setRates(List.of(0.1, 0.2));
+        properties.getDefinitions().put("broken", broken);
+
+        assertThrows(IllegalStateException.class, () -> new TariffService(properties));
+    }
+
+    @Test
+    void vectorKernels_matchScalarKernels() {
+        TariffKernels vector = TariffKernels.best();
+        TariffKernels scalar = new ScalarTariffKernels();
+        // only built, and surefire only adds the module, with -Pvector
+        assumeTrue(vector.getClass().getSimpleName().equals("VectorTariffKernels"), "Vector API kernels not built");
+
+        Random random = new Random(7);
+        double[] a = random.doubles(1000).toArray();
+        double[] b = random.doubles(1000).toArray();
+        for (int len : new int[]{0, 3, 24, 168, 997}) {
+            assertThat(vector.dot(a, 1, b, 2, len)).isCloseTo(scalar.dot(a, 1, b, 2, len), within(1e-9));
+            assertThat(vector.max(a, 3, len)).isEqualTo(scalar.max(a, 3, len));
+
+            double[] accV = new double[len];
+            double[] accS = new double[len];
+            vector.multiplyAdd(accV, a, 3, b, 0, len);
+            scalar.multiplyAdd(accS, a, 3, b, 0, len);
+            for (int i = 0; i < len; i++) {
+                assertThat(accV[i]).isCloseTo(accS[i], within(1e-12));
+            }
+        }
+    }
+}